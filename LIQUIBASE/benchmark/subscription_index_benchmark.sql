@@ -0,0 +1,79 @@
+-- Plans and latencies of the subscription queries with the former composite index and with the index set of 4.0.6.
+--
+-- Runs in a scratch schema inside a transaction that is rolled back, nothing is left in the database:
+--   psql -h localhost -U postgres -d db71u -f subscription_index_benchmark.sql > subscription_index_benchmark.out
+-- PostgreSQL 12 or later is needed to force the generic plans of the prepared queries.
+--
+-- The rows follow the shape of the SubscriptionDaoTest data, scaled up: 20000 subscriptions over 200 organisations,
+-- 400 end points and 50 channels, three quarters of them enabled, with validity periods spread over ten years.
+
+\set ON_ERROR_STOP on
+\timing on
+
+BEGIN;
+
+CREATE EXTENSION IF NOT EXISTS pg_trgm;
+
+CREATE SCHEMA subscription_benchmark;
+SET LOCAL search_path TO subscription_benchmark, public;
+
+CREATE TABLE subscription (
+    id BIGINT PRIMARY KEY,
+    channel BIGINT NOT NULL,
+    delay VARCHAR(255),
+    description VARCHAR(255),
+    enabled BOOLEAN NOT NULL,
+    end_point BIGINT NOT NULL,
+    subscription_guid VARCHAR(36) NOT NULL UNIQUE,
+    message_type VARCHAR(255) NOT NULL,
+    name VARCHAR(255) NOT NULL UNIQUE,
+    organisation BIGINT NOT NULL,
+    state_type VARCHAR(255) NOT NULL,
+    subscription_type VARCHAR(255) NOT NULL,
+    trigger_type VARCHAR(255) NOT NULL,
+    accessibility VARCHAR(255) NOT NULL DEFAULT 'UNKNOWN',
+    end_date TIMESTAMP WITHOUT TIME ZONE,
+    start_date TIMESTAMP WITHOUT TIME ZONE
+);
+
+INSERT INTO subscription
+SELECT i,
+       1 + i % 50,
+       NULL,
+       CASE WHEN i % 3 = 0 THEN NULL ELSE 'description of subscription ' || i END,
+       i % 4 <> 0,
+       1 + i % 400,
+       md5(i::text)::uuid::text,
+       (ARRAY['FLUX_FA_QUERY_MESSAGE', 'FLUX_FA_REPORT_MESSAGE', 'FLUX_VESSEL_POSITION_MESSAGE', 'FLUX_SALES_QUERY_MESSAGE', 'FLUX_SALES_MESSAGE', 'UNKNOWN'])[1 + i % 6],
+       'subscription' || i,
+       1 + i % 200,
+       'UNKNOWN',
+       (ARRAY['TX_PULL', 'TX_PUSH', 'UNKNOWN'])[1 + i % 3],
+       'AUTO',
+       (ARRAY['PRIVATE', 'SCOPE', 'PUBLIC', 'UNKNOWN'])[1 + i % 4],
+       start_date + (1 + i % 1000) * INTERVAL '1 day',
+       start_date
+FROM (SELECT i, TIMESTAMP '2015-01-01' + (i % 3650) * INTERVAL '1 day' AS start_date
+      FROM generate_series(1, 20000) AS i) AS rows;
+
+\echo '==================== before: idx_subscription (12 columns, leading with name) ===================='
+
+CREATE INDEX idx_subscription ON subscription (name, description, channel, end_point, message_type, subscription_type,
+    organisation, accessibility, end_date, start_date, enabled, state_type);
+ANALYZE subscription;
+
+\ir subscription_index_benchmark_queries.sql
+
+\echo '==================== after: index set of changelog 4.0.6 ===================='
+
+DROP INDEX idx_subscription;
+CREATE INDEX idx_subscription_validity ON subscription (start_date, end_date);
+CREATE INDEX idx_subscription_name_trgm ON subscription USING gin (upper(name) gin_trgm_ops);
+CREATE INDEX idx_subscription_description_trgm ON subscription USING gin (upper(description) gin_trgm_ops);
+CREATE INDEX idx_subscription_organisation_message ON subscription (organisation, message_type, enabled);
+CREATE INDEX idx_subscription_end_point_channel ON subscription (end_point, channel);
+ANALYZE subscription;
+
+\ir subscription_index_benchmark_queries.sql
+
+ROLLBACK;
@@ -0,0 +1,60 @@
+-- Queries of SubscriptionDao as sent by Hibernate, included by subscription_index_benchmark.sql before and after the
+-- index change. They are prepared with bind parameters and planned generically, like the JDBC prepared statements of
+-- the application once the driver caches them. Each plan is printed with its actual execution time.
+
+SET plan_cache_mode = force_generic_plan;
+
+PREPARE strict_list(BIGINT, VARCHAR, BOOLEAN, TIMESTAMP, TIMESTAMP) AS
+SELECT id FROM subscription
+WHERE organisation = $1 AND message_type = $2 AND enabled = $3 AND start_date <= $4 AND end_date >= $5
+ORDER BY id LIMIT 20;
+
+PREPARE list_by_organisation(BIGINT) AS
+SELECT id FROM subscription
+WHERE organisation = $1
+ORDER BY id LIMIT 20;
+
+PREPARE count_by_organisation_message(BIGINT, VARCHAR) AS
+SELECT count(id) FROM subscription
+WHERE organisation = $1 AND message_type = $2;
+
+PREPARE list_by_end_point_channel(BIGINT, BIGINT) AS
+SELECT id FROM subscription
+WHERE end_point = $1 AND channel = $2
+ORDER BY id LIMIT 20;
+
+PREPARE list_by_validity(TIMESTAMP, TIMESTAMP) AS
+SELECT id FROM subscription
+WHERE start_date <= $1 AND end_date >= $2
+ORDER BY id LIMIT 20;
+
+PREPARE list_by_name(VARCHAR) AS
+SELECT id FROM subscription
+WHERE upper(name) LIKE $1
+ORDER BY id LIMIT 20;
+
+\echo '---- strict listing on organisation, message type and state of the subscriptions valid at a date'
+EXPLAIN (ANALYZE, BUFFERS, COSTS OFF)
+EXECUTE strict_list(19, 'FLUX_FA_QUERY_MESSAGE', true, TIMESTAMP '2019-06-01', TIMESTAMP '2019-06-01');
+
+\echo '---- list filtered on organisation, any state'
+EXPLAIN (ANALYZE, BUFFERS, COSTS OFF)
+EXECUTE list_by_organisation(19);
+
+\echo '---- count of the list filtered on organisation and message type'
+EXPLAIN (ANALYZE, BUFFERS, COSTS OFF)
+EXECUTE count_by_organisation_message(19, 'FLUX_FA_QUERY_MESSAGE');
+
+\echo '---- list filtered on end point and channel'
+EXPLAIN (ANALYZE, BUFFERS, COSTS OFF)
+EXECUTE list_by_end_point_channel(42, 42);
+
+\echo '---- list filtered on the validity period'
+EXPLAIN (ANALYZE, BUFFERS, COSTS OFF)
+EXECUTE list_by_validity(TIMESTAMP '2015-03-01', TIMESTAMP '2015-02-01');
+
+\echo '---- contains-search on the name'
+EXPLAIN (ANALYZE, BUFFERS, COSTS OFF)
+EXECUTE list_by_name('%SUBSCRIPTION1234%');
+
+DEALLOCATE ALL;
@@ -0,0 +1,37 @@
+-- Tables and sequences of the insert benchmark, in a scratch schema dropped by subscription_insert_benchmark_teardown.sql:
+--   psql -h localhost -U postgres -d db71u -f subscription_insert_benchmark_setup.sql
+--   pgbench -h localhost -U postgres -n -c 4 -T 60 -f subscription_insert_per_row.pgbench db71u
+--   pgbench -h localhost -U postgres -n -c 4 -T 60 -f subscription_insert_pooled_lo.pgbench db71u
+--   psql -h localhost -U postgres -d db71u -f subscription_insert_benchmark_teardown.sql
+--
+-- A transaction of the scripts creates one subscription with 30 conditions. Run pgbench (13 or later, for \gset) from
+-- another host than the database, so that the network round trips are counted:
+--   per row:   one nextval on hibernate_sequence before each insert, 31 nextval and 31 inserts
+--   pooled-lo: the ids come from blocks of 50 held by the application, inserts are sent in JDBC batches. The scripts
+--              take one block of each sequence per transaction, an upper bound: a block of subscription ids lasts 50
+--              subscriptions. The batch of conditions is a single multi-row insert.
+
+\set ON_ERROR_STOP on
+
+CREATE SCHEMA subscription_insert_benchmark;
+SET search_path TO subscription_insert_benchmark;
+
+CREATE SEQUENCE hibernate_sequence START WITH 100;
+CREATE SEQUENCE subscription_seq START WITH 1 INCREMENT BY 50;
+CREATE SEQUENCE condition_seq START WITH 1 INCREMENT BY 50;
+
+CREATE TABLE subscription (
+    id BIGINT PRIMARY KEY,
+    name VARCHAR(255) NOT NULL UNIQUE,
+    organisation BIGINT NOT NULL,
+    message_type VARCHAR(255) NOT NULL,
+    enabled BOOLEAN NOT NULL
+);
+
+CREATE TABLE condition (
+    id BIGINT PRIMARY KEY,
+    subscription_id BIGINT REFERENCES subscription (id),
+    position INT NOT NULL,
+    condition_type VARCHAR(255) NOT NULL,
+    value VARCHAR(255)
+);
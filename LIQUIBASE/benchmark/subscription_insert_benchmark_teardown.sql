@@ -0,0 +1,3 @@
+-- Drops the scratch schema of subscription_insert_benchmark_setup.sql.
+
+DROP SCHEMA subscription_insert_benchmark CASCADE;
@@ -14,4 +14,15 @@ package eu.europa.fisheries.uvms.subscription.model.mapper;
  * Created by kovian on 28/12/2017.
  */
 public class SubscriptionModuleRequestMapper {
+
+    /**
+     * JMS string property carrying the method of a request sent to the subscription event queue. A PING sent with
+     * this property set to PING is answered by a consumer that starts no transaction. The property is optional,
+     * requests without it are still recognised from their content.
+     */
+    public static final String METHOD_PROPERTY = "subscriptionMethod";
+
+    private SubscriptionModuleRequestMapper() {
+
+    }
 }
@@ -14,6 +14,7 @@ package eu.europa.fisheries.uvms.subscription.model.mapper;
 import javax.xml.bind.JAXBException;
 
 import eu.europa.ec.fisheries.uvms.commons.message.impl.JAXBUtils;
+import eu.europa.ec.fisheries.wsdl.subscription.module.SubscriptionBatchPermissionResponse;
 import eu.europa.ec.fisheries.wsdl.subscription.module.SubscriptionPermissionResponse;
 
 public class SubscriptionModuleResponseMapper {
@@ -22,4 +23,7 @@ public class SubscriptionModuleResponseMapper {
         return JAXBUtils.unMarshallMessage(responseStr, SubscriptionPermissionResponse.class);
     }
 
+    public static SubscriptionBatchPermissionResponse mapToSubscriptionBatchPermissionResponse(String responseStr) throws JAXBException {
+        return JAXBUtils.unMarshallMessage(responseStr, SubscriptionBatchPermissionResponse.class);
+    }
 }
@@ -16,6 +16,7 @@ import java.util.HashSet;
 import java.util.Set;
 
 import eu.europa.ec.fisheries.uvms.rest.security.UnionVMSFeatureFilter;
+import eu.europa.ec.fisheries.uvms.subsription.rest.filter.SubscriptionConflictExceptionHandler;
 import eu.europa.ec.fisheries.uvms.subsription.rest.resource.SubscriptionResource;
 
 @ApplicationPath("/rest")
@@ -27,6 +28,7 @@ public class SubscriptionActivator extends Application {
     public SubscriptionActivator() {
         set.add(SubscriptionResource.class);
         set.add(UnionVMSFeatureFilter.class);
+        set.add(SubscriptionConflictExceptionHandler.class);
     }
 
     @Override
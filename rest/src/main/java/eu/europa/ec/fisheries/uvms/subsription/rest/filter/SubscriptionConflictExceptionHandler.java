@@ -0,0 +1,35 @@
+/*
+ Developed by the European Commission - Directorate General for Maritime Affairs and Fisheries @ European Union, 2015-2016.
+
+ This file is part of the Integrated Fisheries Data Management (IFDM) Suite. The IFDM Suite is free software: you can redistribute it
+ and/or modify it under the terms of the GNU General Public License as published by the Free Software Foundation, either version 3 of
+ the License, or any later version. The IFDM Suite is distributed in the hope that it will be useful, but WITHOUT ANY WARRANTY;
+ without even the implied warranty of MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU General Public License for more
+ details. You should have received a copy of the GNU General Public License along with the IFDM Suite. If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package eu.europa.ec.fisheries.uvms.subsription.rest.filter;
+
+import javax.ws.rs.Produces;
+import javax.ws.rs.core.Response;
+import javax.ws.rs.ext.ExceptionMapper;
+import javax.ws.rs.ext.Provider;
+
+import eu.europa.ec.fisheries.uvms.commons.rest.resource.UnionVMSResource;
+import eu.europa.ec.fisheries.uvms.subscription.service.exception.SubscriptionConflictException;
+import lombok.extern.slf4j.Slf4j;
+
+/**
+ * Answers an update based on an outdated version of a subscription with 409 Conflict.
+ */
+@Provider
+@Slf4j
+public class SubscriptionConflictExceptionHandler extends UnionVMSResource implements ExceptionMapper<SubscriptionConflictException> {
+
+    @Override
+    @Produces("application/json")
+    public Response toResponse(SubscriptionConflictException exception) {
+        log.info("[INFO] {}", exception.getMessage());
+        return Response.status(Response.Status.CONFLICT).entity(createErrorResponse(exception.getMessage()).getEntity()).build();
+    }
+}
@@ -18,6 +18,7 @@ import javax.ejb.EJB;
 import javax.ejb.Stateless;
 import javax.interceptor.Interceptors;
 import javax.servlet.http.HttpServletRequest;
+import javax.validation.Valid;
 import javax.validation.constraints.NotNull;
 import javax.ws.rs.Consumes;
 import javax.ws.rs.DELETE;
@@ -28,15 +29,22 @@ import javax.ws.rs.PUT;
 import javax.ws.rs.Path;
 import javax.ws.rs.PathParam;
 import javax.ws.rs.Produces;
+import javax.ws.rs.QueryParam;
 import javax.ws.rs.core.Context;
 import javax.ws.rs.core.Response;
+import javax.ws.rs.core.StreamingOutput;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.util.List;
 
 import eu.europa.ec.fisheries.uvms.commons.rest.resource.UnionVMSResource;
 import eu.europa.ec.fisheries.uvms.commons.service.interceptor.ValidationInterceptor;
 import eu.europa.ec.fisheries.uvms.rest.security.RequiresFeature;
 import eu.europa.ec.fisheries.uvms.subscription.service.bean.SubscriptionServiceBean;
 import eu.europa.ec.fisheries.uvms.subscription.service.dto.SubscriptionDto;
+import eu.europa.ec.fisheries.uvms.subscription.service.dto.SubscriptionExportFormat;
 import eu.europa.ec.fisheries.uvms.subscription.service.dto.SubscriptionListQueryDto;
+import eu.europa.ec.fisheries.uvms.subscription.service.dto.SubscriptionStateDto;
 import eu.europa.ec.fisheries.uvms.subsription.rest.filter.SubscriptionServiceExceptionHandler;
 import lombok.extern.slf4j.Slf4j;
 
@@ -68,7 +76,9 @@ public class SubscriptionResource extends UnionVMSResource {
     private SubscriptionServiceBean service;
 
     /**
-     * Search for subscription matching the given criteria.
+     * Search for subscription matching the given criteria. Pages are read by page number, or with a cursor when the
+     * query carries one (empty for the first page), the response then giving the cursor of the next page. In summary
+     * mode the subscriptions are listed without their conditions and areas, read with the details of each one.
      *
      * @param dto criteria to listSubscriptions on
      * @return @responseType eu.europa.ec.fisheries.uvms.subscription.service.dto.SubscriptionListResponseDto
@@ -80,7 +90,60 @@ public class SubscriptionResource extends UnionVMSResource {
     @Interceptors(ValidationInterceptor.class)
     @RequiresFeature(VIEW_SUBSCRIPTION)
     public Response listSubscriptions(@NotNull SubscriptionListQueryDto dto) {
-        return createSuccessResponse(service.listSubscriptions(dto.getQueryParameters(), dto.getPagination(), dto.getOrderBy(), scopeName, roleName,servletRequest.getRemoteUser()));
+        if (dto.getCursor() != null) {
+            return createSuccessResponse(service.listSubscriptionsAfter(dto.getQueryParameters(), dto.getPagination().getPageSize(), dto.getOrderBy(), dto.getCursor(), dto.isSummary(), scopeName, roleName, servletRequest.getRemoteUser()));
+        }
+        return createSuccessResponse(service.listSubscriptions(dto.getQueryParameters(), dto.getPagination(), dto.getOrderBy(), dto.isSummary(), scopeName, roleName,servletRequest.getRemoteUser()));
+    }
+
+    /**
+     * Export all the subscriptions matching the given criteria, streamed as they are read: one JSON object per line
+     * (NDJSON) or comma separated values (CSV). The pagination of the query is ignored.
+     *
+     * @param dto criteria to export on
+     * @param format NDJSON or CSV, case insensitive, NDJSON when missing; any other value is answered with a 400
+     */
+    @POST
+    @Consumes(value = {APPLICATION_JSON})
+    @Produces(value = {"application/x-ndjson", "text/csv"})
+    @Path("export")
+    @Interceptors(ValidationInterceptor.class)
+    @RequiresFeature(VIEW_SUBSCRIPTION)
+    public Response exportSubscriptions(@NotNull final SubscriptionListQueryDto dto, @QueryParam("format") String format) {
+        final SubscriptionExportFormat exportFormat;
+        try {
+            exportFormat = SubscriptionExportFormat.fromParameter(format);
+        } catch (IllegalArgumentException e) {
+            return Response.status(Response.Status.BAD_REQUEST).entity(createErrorResponse(e.getMessage()).getEntity()).build();
+        }
+        // the rows are written once this method has returned, the request headers are read now
+        final String scope = scopeName;
+        final String role = roleName;
+        final String requester = servletRequest.getRemoteUser();
+        StreamingOutput rows = new StreamingOutput() {
+            @Override
+            public void write(OutputStream output) throws IOException {
+                service.exportSubscriptions(dto.getQueryParameters(), dto.getOrderBy(), exportFormat, output, scope, role, requester);
+            }
+        };
+        return Response.ok(rows, exportFormat.mediaType())
+                .header("Content-Disposition", "attachment; filename=\"subscriptions." + exportFormat.extension() + "\"")
+                .build();
+    }
+
+    /**
+     * Details of a subscription, with its conditions and areas.
+     *
+     * @param id the subscription id
+     * @return @responseType eu.europa.ec.fisheries.uvms.subscription.service.domain.SubscriptionEntity
+     */
+    @GET
+    @Path("details/{id}")
+    @Produces(APPLICATION_JSON)
+    @RequiresFeature(VIEW_SUBSCRIPTION)
+    @Interceptors(ValidationInterceptor.class)
+    public Response findDetails(@NotNull @PathParam("id") Long id) {
+        return createSuccessResponse(service.findSubscriptionDetails(id, scopeName, roleName, servletRequest.getRemoteUser()));
     }
 
     /**
@@ -98,6 +161,62 @@ public class SubscriptionResource extends UnionVMSResource {
         return createSuccessResponse(service.findSubscriptionByName(name));
     }
 
+    /**
+     * Subscription of a guid. The guid of a subscription does not change once created.
+     *
+     * @param guid the guid of the subscription
+     * @return @responseType eu.europa.ec.fisheries.uvms.subscription.service.domain.SubscriptionEntity
+     */
+    @GET
+    @Path("guid/{guid}")
+    @Produces(APPLICATION_JSON)
+    @RequiresFeature(VIEW_SUBSCRIPTION)
+    @Interceptors(ValidationInterceptor.class)
+    public Response findByGuid(@NotNull @PathParam("guid") String guid) {
+        return createSuccessResponse(service.findSubscriptionByGuid(guid));
+    }
+
+    /**
+     * Subscriptions of several guids, read in one call. Unknown guids are left out of the result.
+     *
+     * @param guids the guids of the subscriptions
+     * @return @responseType java.util.List<eu.europa.ec.fisheries.uvms.subscription.service.domain.SubscriptionEntity>
+     */
+    @POST
+    @Path("guids")
+    @Consumes(value = {APPLICATION_JSON})
+    @Produces(value = {APPLICATION_JSON})
+    @RequiresFeature(VIEW_SUBSCRIPTION)
+    @Interceptors(ValidationInterceptor.class)
+    public Response findByGuids(@NotNull List<String> guids) {
+        return createSuccessResponse(service.findSubscriptionsByGuids(guids));
+    }
+
+    /**
+     * Statistics of the permission decision cache.
+     *
+     * @return @responseType eu.europa.ec.fisheries.uvms.subscription.service.dto.PermissionCacheStatisticsDto
+     */
+    @GET
+    @Path("statistics/permissions")
+    @Produces(APPLICATION_JSON)
+    @RequiresFeature(VIEW_SUBSCRIPTION)
+    public Response permissionCacheStatistics() {
+        return createSuccessResponse(service.getPermissionCacheStatistics());
+    }
+
+    /**
+     * Reload the organisations, end points and channels used to name them in the subscription lists.
+     */
+    @POST
+    @Path("directory/refresh")
+    @Produces(APPLICATION_JSON)
+    @RequiresFeature(MANAGE_SUBSCRIPTION)
+    public Response refreshOrganisationDirectory() {
+        service.refreshOrganisationDirectory();
+        return createSuccessResponse();
+    }
+
     /**
      * Create new subscription.
      *
@@ -128,6 +247,79 @@ public class SubscriptionResource extends UnionVMSResource {
         return createSuccessResponse(service.update(subscription, servletRequest.getRemoteUser()));
     }
 
+    /**
+     * Enable or disable a subscription and set its validity period, without sending the rest of it. Answers 409
+     * Conflict if the subscription was changed since the given version.
+     *
+     * @param id the subscription id
+     * @param state the new state, with the version it is based on
+     * @return @responseType eu.europa.ec.fisheries.uvms.subscription.service.dto.SubscriptionStateDto
+     */
+    @PUT
+    @Path("{id}/state")
+    @Consumes(value = {APPLICATION_JSON})
+    @Produces(value = {APPLICATION_JSON})
+    @RequiresFeature(MANAGE_SUBSCRIPTION)
+    @Interceptors(ValidationInterceptor.class)
+    public Response updateState(@PathParam("id") @NotNull Long id, @NotNull @Valid SubscriptionStateDto state) {
+        if (state.getVersion() == null || state.getActive() == null) {
+            return Response.status(Response.Status.BAD_REQUEST).entity(createErrorResponse("version and isActive are required").getEntity()).build();
+        }
+        return createSuccessResponse(service.updateState(id, state, servletRequest.getRemoteUser()));
+    }
+
+    /**
+     * Create subscriptions in one transaction. Each subscription gets its own result, the valid ones are created
+     * even if others fail.
+     *
+     * @param subscriptions subscriptions to create
+     * @return @responseType eu.europa.ec.fisheries.uvms.subscription.service.dto.BulkResultDto
+     */
+    @POST
+    @Path("bulk")
+    @Consumes(value = {APPLICATION_JSON})
+    @Produces(value = {APPLICATION_JSON})
+    @RequiresFeature(MANAGE_SUBSCRIPTION)
+    @Interceptors(ValidationInterceptor.class)
+    public Response createAll(@NotNull List<SubscriptionDto> subscriptions) {
+        return createSuccessResponse(service.createAll(subscriptions, servletRequest.getRemoteUser()));
+    }
+
+    /**
+     * Update subscriptions in one transaction. Each subscription gets its own result, the valid ones are updated
+     * even if others fail; a version that does not match is reported as a failure of its subscription. A subscription
+     * changed by someone else while the batch is being written fails the whole batch with 409 Conflict.
+     *
+     * @param subscriptions subscriptions to update
+     * @return @responseType eu.europa.ec.fisheries.uvms.subscription.service.dto.BulkResultDto
+     */
+    @PUT
+    @Path("bulk")
+    @Consumes(value = {APPLICATION_JSON})
+    @Produces(value = {APPLICATION_JSON})
+    @RequiresFeature(MANAGE_SUBSCRIPTION)
+    @Interceptors(ValidationInterceptor.class)
+    public Response updateAll(@NotNull List<SubscriptionDto> subscriptions) {
+        return createSuccessResponse(service.updateAll(subscriptions, servletRequest.getRemoteUser()));
+    }
+
+    /**
+     * Delete subscriptions in one transaction. Each id gets its own result. A subscription changed by someone else
+     * while the batch is being written fails the whole batch with 409 Conflict.
+     *
+     * @param ids the subscription ids
+     * @return @responseType eu.europa.ec.fisheries.uvms.subscription.service.dto.BulkResultDto
+     */
+    @POST
+    @Path("bulk/delete")
+    @Consumes(value = {APPLICATION_JSON})
+    @Produces(value = {APPLICATION_JSON})
+    @RequiresFeature(MANAGE_SUBSCRIPTION)
+    @Interceptors(ValidationInterceptor.class)
+    public Response deleteAll(@NotNull List<Long> ids) {
+        return createSuccessResponse(service.deleteAll(ids, servletRequest.getRemoteUser()));
+    }
+
     /**
      * Delete subscription.
      *
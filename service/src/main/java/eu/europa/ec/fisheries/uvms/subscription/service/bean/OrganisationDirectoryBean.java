@@ -0,0 +1,212 @@
+/*
+ Developed by the European Commission - Directorate General for Maritime Affairs and Fisheries @ European Union, 2015-2016.
+
+ This file is part of the Integrated Fisheries Data Management (IFDM) Suite. The IFDM Suite is free software: you can redistribute it
+ and/or modify it under the terms of the GNU General Public License as published by the Free Software Foundation, either version 3 of
+ the License, or any later version. The IFDM Suite is distributed in the hope that it will be useful, but WITHOUT ANY WARRANTY;
+ without even the implied warranty of MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU General Public License for more
+ details. You should have received a copy of the GNU General Public License along with the IFDM Suite. If not, see <http://www.gnu.org/licenses/>.
+ */
+
+
+package eu.europa.ec.fisheries.uvms.subscription.service.bean;
+
+import static javax.ejb.ConcurrencyManagementType.BEAN;
+
+import javax.annotation.PostConstruct;
+import javax.annotation.Resource;
+import javax.ejb.AsyncResult;
+import javax.ejb.Asynchronous;
+import javax.ejb.ConcurrencyManagement;
+import javax.ejb.EJB;
+import javax.ejb.LocalBean;
+import javax.ejb.SessionContext;
+import javax.ejb.Singleton;
+import javax.ejb.Startup;
+import javax.ejb.Timeout;
+import javax.ejb.Timer;
+import javax.ejb.TimerConfig;
+import javax.ejb.TimerService;
+import javax.jms.TextMessage;
+import java.io.Serializable;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.Future;
+
+import eu.europa.ec.fisheries.uvms.commons.date.DateUtils;
+import eu.europa.ec.fisheries.uvms.commons.message.impl.JAXBUtils;
+import eu.europa.ec.fisheries.uvms.subscription.service.cache.RefreshingCache;
+import eu.europa.ec.fisheries.uvms.subscription.service.cache.SingleFlight;
+import eu.europa.ec.fisheries.uvms.subscription.service.mapper.OrganisationLookup;
+import eu.europa.ec.fisheries.uvms.user.model.mapper.UserModuleRequestMapper;
+import eu.europa.ec.fisheries.wsdl.user.module.FindOrganisationsResponse;
+import eu.europa.ec.fisheries.wsdl.user.types.Organisation;
+import lombok.Value;
+import lombok.extern.slf4j.Slf4j;
+
+/**
+ * Local copy of the organisations, with their end points and channels, of the User module, used to add their names
+ * to the subscription lists without a round trip to the User module on every page.
+ * <p>
+ * Organisations are kept per scope and role. They are refreshed in the background once their time to live is over,
+ * the previous copy being served until the refresh completes; only the first requests of a scope and role wait for
+ * the User module, all of them for the same load. {@link #refresh()} forces the refresh of every copy.
+ */
+@Singleton
+@Startup
+@LocalBean
+@ConcurrencyManagement(BEAN)
+@Slf4j
+public class OrganisationDirectoryBean {
+
+    private static final long TIME_TO_LIVE = 300000L;
+
+    private final RefreshingCache<DirectoryKey, OrganisationLookup> directory = new RefreshingCache<>(TIME_TO_LIVE);
+
+    /** Last requester of each scope and role, on whose behalf background refreshes are sent. */
+    private final ConcurrentMap<DirectoryKey, String> requesters = new ConcurrentHashMap<>();
+
+    /** First loads in progress, concurrent first requests of a scope and role wait for the same one. */
+    private final SingleFlight<DirectoryKey, OrganisationLookup> firstLoads = new SingleFlight<>();
+
+    @EJB
+    private SubscriptionUserProducerBean subscriptionUserProducerBean;
+
+    @EJB
+    private SubscriptionUserConsumerBean subscriptionUserConsumerBean;
+
+    @Resource
+    private TimerService timerService;
+
+    @Resource
+    private SessionContext context;
+
+    @PostConstruct
+    public void init() {
+        timerService.createIntervalTimer(TIME_TO_LIVE, TIME_TO_LIVE, new TimerConfig(null, false));
+    }
+
+    /**
+     * @return the organisations visible with the given scope and role, possibly expired, as a completed future when a
+     * copy is held; otherwise the first load runs asynchronously, so that the caller can do its own work meanwhile.
+     * Callers arriving during the first load wait for its result. The value is null if the User module could not be
+     * reached.
+     */
+    public Future<OrganisationLookup> getOrganisations(String scopeName, String roleName, String requester) {
+        DirectoryKey key = new DirectoryKey(scopeName, roleName);
+        if (requester != null) {
+            requesters.put(key, requester);
+        }
+        OrganisationLookup organisations = directory.get(key);
+        if (organisations == null) {
+            return self().loadFirst(scopeName, roleName);
+        }
+        if (directory.startRefresh(key, now())) {
+            timerService.createSingleActionTimer(0L, new TimerConfig(key, false));
+        }
+        return CompletableFuture.completedFuture(organisations);
+    }
+
+    /**
+     * First load of a scope and role. Concurrent calls for the same scope and role share a single request to the
+     * User module.
+     */
+    @Asynchronous
+    public Future<OrganisationLookup> loadFirst(String scopeName, String roleName) {
+        final DirectoryKey key = new DirectoryKey(scopeName, roleName);
+        return new AsyncResult<>(firstLoads.execute(key, new Callable<OrganisationLookup>() {
+            @Override
+            public OrganisationLookup call() {
+                OrganisationLookup organisations = directory.get(key);
+                if (organisations != null) {
+                    // loaded by a caller that completed in the meantime
+                    return organisations;
+                }
+                return directory.startRefresh(key, now()) ? load(key) : null;
+            }
+        }));
+    }
+
+    /**
+     * Manual refresh: every copy is reloaded in the background, the current ones being served meanwhile.
+     */
+    public void refresh() {
+        for (DirectoryKey key : directory.expireAll()) {
+            if (directory.startRefresh(key, now())) {
+                timerService.createSingleActionTimer(0L, new TimerConfig(key, false));
+            }
+        }
+        log.info("[INFO] Refresh of the organisation directory requested");
+    }
+
+    /**
+     * Runs the refresh of one key, or of every expired key for the periodic timer.
+     */
+    @Timeout
+    public void onTimeout(Timer timer) {
+        Serializable info = timer.getInfo();
+        if (info instanceof DirectoryKey) {
+            load((DirectoryKey) info);
+            return;
+        }
+        for (DirectoryKey key : directory.expiredKeys(now())) {
+            if (directory.startRefresh(key, now())) {
+                load(key);
+            }
+        }
+    }
+
+    /**
+     * Must only be called by the owner of the refresh of the key, see {@link RefreshingCache#startRefresh}.
+     */
+    private OrganisationLookup load(DirectoryKey key) {
+        try {
+            List<Organisation> received = requestOrganisations(key.getScopeName(), key.getRoleName(), requesters.get(key));
+            if (received == null) {
+                log.error("[ERROR] No organisations received from the User module for scope {} and role {}", key.getScopeName(), key.getRoleName());
+                directory.refreshFailed(key);
+                return null;
+            }
+            // indexed once per load, not on every list
+            OrganisationLookup organisations = OrganisationLookup.of(received);
+            directory.refreshed(key, organisations, now());
+            return organisations;
+        } catch (Exception e) {
+            log.error("[ERROR] Error while loading the organisations for scope {} and role {}", key.getScopeName(), key.getRoleName(), e);
+            directory.refreshFailed(key);
+            return null;
+        }
+    }
+
+    /**
+     * Round trip to the User module.
+     * @return the organisations, null if no answer was received
+     */
+    protected List<Organisation> requestOrganisations(String scopeName, String roleName, String requester) throws Exception {
+        String request = UserModuleRequestMapper.mapToGetAllOrganisationRequest(scopeName, roleName, requester);
+        String correlationID = subscriptionUserProducerBean.sendModuleMessage(request, subscriptionUserConsumerBean.getDestination());
+        TextMessage message = correlationID == null ? null : subscriptionUserConsumerBean.getMessage(correlationID, TextMessage.class);
+        return message == null ? null : JAXBUtils.unMarshallMessage(message.getText(), FindOrganisationsResponse.class).getOrganisation();
+    }
+
+    /**
+     * @return this bean through the container, so that asynchronous methods run asynchronously
+     */
+    protected OrganisationDirectoryBean self() {
+        return context.getBusinessObject(OrganisationDirectoryBean.class);
+    }
+
+    private static long now() {
+        return DateUtils.nowUTC().getMillis();
+    }
+
+    @Value
+    static class DirectoryKey implements Serializable {
+
+        private final String scopeName;
+        private final String roleName;
+    }
+}
@@ -0,0 +1,309 @@
+/*
+ Developed by the European Commission - Directorate General for Maritime Affairs and Fisheries @ European Union, 2015-2016.
+
+ This file is part of the Integrated Fisheries Data Management (IFDM) Suite. The IFDM Suite is free software: you can redistribute it
+ and/or modify it under the terms of the GNU General Public License as published by the Free Software Foundation, either version 3 of
+ the License, or any later version. The IFDM Suite is distributed in the hope that it will be useful, but WITHOUT ANY WARRANTY;
+ without even the implied warranty of MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU General Public License for more
+ details. You should have received a copy of the GNU General Public License along with the IFDM Suite. If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package eu.europa.ec.fisheries.uvms.subscription.service.bean;
+
+import static javax.ejb.ConcurrencyManagementType.BEAN;
+
+import javax.annotation.PostConstruct;
+import javax.annotation.Resource;
+import javax.ejb.ConcurrencyManagement;
+import javax.ejb.LocalBean;
+import javax.ejb.Singleton;
+import javax.ejb.Startup;
+import javax.transaction.Status;
+import javax.transaction.Synchronization;
+import javax.transaction.TransactionSynchronizationRegistry;
+import java.util.ArrayList;
+import java.util.Date;
+import java.util.List;
+import java.util.concurrent.Callable;
+
+import eu.europa.ec.fisheries.uvms.commons.date.DateUtils;
+import eu.europa.ec.fisheries.uvms.subscription.service.cache.PermissionCacheKey;
+import eu.europa.ec.fisheries.uvms.subscription.service.cache.PermissionDecisionCache;
+import eu.europa.ec.fisheries.uvms.subscription.service.cache.SingleFlight;
+import eu.europa.ec.fisheries.uvms.subscription.service.condition.CompiledConditionCache;
+import eu.europa.ec.fisheries.uvms.subscription.service.condition.PredicateNetwork;
+import eu.europa.ec.fisheries.uvms.subscription.service.dao.SubscriptionDao;
+import eu.europa.ec.fisheries.uvms.subscription.service.domain.SubscriptionEntity;
+import eu.europa.ec.fisheries.uvms.subscription.service.dto.PermissionCacheStatisticsDto;
+import eu.europa.ec.fisheries.uvms.subscription.service.index.IndexedSubscription;
+import eu.europa.ec.fisheries.uvms.subscription.service.index.PermissionQuery;
+import eu.europa.ec.fisheries.uvms.subscription.service.index.SubscriptionIndex;
+import lombok.extern.slf4j.Slf4j;
+
+/**
+ * Holds the in-memory {@link SubscriptionIndex} used to answer MODULE_ACCESS_PERMISSION_REQUEST without a database round trip.
+ * The index is loaded at startup and kept in sync by {@link SubscriptionServiceBean}; changes are applied once the
+ * surrounding transaction has committed, so a rolled back modification never reaches the index.
+ * Start conditions are compiled once per subscription version, a permission check only walks the compiled trees,
+ * whose leaves are shared through a {@link PredicateNetwork}.
+ * Decisions are cached in a {@link PermissionDecisionCache}; a committed change only invalidates the decisions
+ * cached for the messageType and organisation of the subscription, before and after the change.
+ */
+@Singleton
+@Startup
+@LocalBean
+@ConcurrencyManagement(BEAN)
+@Slf4j
+public class SubscriptionIndexBean extends BaseSubscriptionBean {
+
+    private static final int DECISION_CACHE_SIZE = 10000;
+
+    private static final long DECISION_CACHE_TTL = 60000L;
+
+    private volatile PredicateNetwork network = new PredicateNetwork();
+
+    private final SubscriptionIndex index = new SubscriptionIndex(network);
+
+    private final CompiledConditionCache compiledConditions = new CompiledConditionCache(network);
+
+    private final PermissionDecisionCache decisionCache = new PermissionDecisionCache(DECISION_CACHE_SIZE, DECISION_CACHE_TTL);
+
+    private final SingleFlight<PermissionCacheKey, Boolean> inFlight = new SingleFlight<>();
+
+    @Resource
+    private TransactionSynchronizationRegistry transactionRegistry;
+
+    @PostConstruct
+    public void init() {
+        initEntityManager();
+        reload();
+    }
+
+    /**
+     * Reload every enabled subscription. The conditions are compiled against a fresh {@link PredicateNetwork}, swapped
+     * in together with the new content of the index, so the predicates of deleted or changed subscriptions are dropped.
+     */
+    public void reload() {
+        List<SubscriptionEntity> entities = new SubscriptionDao(em).listEnabledSubscriptions();
+        List<IndexedSubscription> subscriptions = new ArrayList<>(entities.size());
+        PredicateNetwork fresh = new PredicateNetwork();
+        compiledConditions.reset(fresh);
+        for (SubscriptionEntity entity : entities) {
+            try {
+                subscriptions.add(snapshot(entity));
+            } catch (IllegalArgumentException e) {
+                log.error("[ERROR] Invalid conditions on subscription {}, it will not be matched", entity.getId(), e);
+            }
+        }
+        index.rebuild(subscriptions, fresh);
+        network = fresh;
+        decisionCache.clear();
+        log.info("[INFO] Subscription index loaded with {} enabled subscriptions sharing {} distinct predicates", index.size(), network.size());
+    }
+
+    /**
+     * Concurrent checks of the same normalised query share a single evaluation, see {@link SingleFlight}.
+     */
+    public boolean hasActiveSubscription(final PermissionQuery query) {
+        final long now = DateUtils.nowUTC().getMillis();
+        final PermissionCacheKey key = PermissionCacheKey.of(query);
+        Boolean cached = decisionCache.get(key, now);
+        if (cached != null) {
+            return cached;
+        }
+        return inFlight.execute(key, new Callable<Boolean>() {
+            @Override
+            public Boolean call() {
+                long generation = decisionCache.generation();
+                boolean allowed = index.hasMatch(query, now);
+                decisionCache.put(key, allowed, generation, now);
+                return allowed;
+            }
+        });
+    }
+
+    /**
+     * Batch variant of {@link #hasActiveSubscription}: cached decisions are answered directly, the other queries
+     * are matched together in one pass over the index.
+     * @return for each query, in order, true if it has an active subscription
+     */
+    public boolean[] hasActiveSubscriptions(List<PermissionQuery> queries) {
+        long now = DateUtils.nowUTC().getMillis();
+        boolean[] answers = new boolean[queries.size()];
+        List<Integer> missed = new ArrayList<>();
+        List<PermissionCacheKey> missedKeys = new ArrayList<>();
+        List<PermissionQuery> missedQueries = new ArrayList<>();
+        for (int i = 0; i < answers.length; i++) {
+            PermissionCacheKey key = PermissionCacheKey.of(queries.get(i));
+            Boolean cached = decisionCache.get(key, now);
+            if (cached != null) {
+                answers[i] = cached;
+            } else {
+                missed.add(i);
+                missedKeys.add(key);
+                missedQueries.add(queries.get(i));
+            }
+        }
+        if (missedQueries.isEmpty()) {
+            return answers;
+        }
+        long generation = decisionCache.generation();
+        boolean[] matched = index.hasMatches(missedQueries, now);
+        for (int i = 0; i < matched.length; i++) {
+            answers[missed.get(i)] = matched[i];
+            decisionCache.put(missedKeys.get(i), matched[i], generation, now);
+        }
+        return answers;
+    }
+
+    public PermissionCacheStatisticsDto getPermissionCacheStatistics() {
+        PermissionCacheStatisticsDto statistics = decisionCache.getStatistics();
+        statistics.setCoalesced(inFlight.getCoalesced());
+        return statistics;
+    }
+
+    public void subscriptionSaved(SubscriptionEntity entity) {
+        final IndexedSubscription subscription;
+        try {
+            subscription = snapshot(entity);
+        } catch (IllegalArgumentException e) {
+            log.error("[ERROR] Invalid conditions on subscription {}, it will not be matched", entity.getId(), e);
+            subscriptionDeleted(entity.getId());
+            return;
+        }
+        afterCommit(new Runnable() {
+            @Override
+            public void run() {
+                invalidate(index.put(subscription));
+                invalidate(subscription);
+            }
+        });
+    }
+
+    /**
+     * Batch variant of {@link #subscriptionSaved}, the index is updated once for all the subscriptions.
+     */
+    public void subscriptionsSaved(List<SubscriptionEntity> entities) {
+        final List<IndexedSubscription> subscriptions = new ArrayList<>(entities.size());
+        final List<Long> invalid = new ArrayList<>();
+        for (SubscriptionEntity entity : entities) {
+            try {
+                subscriptions.add(snapshot(entity));
+            } catch (IllegalArgumentException e) {
+                log.error("[ERROR] Invalid conditions on subscription {}, it will not be matched", entity.getId(), e);
+                invalid.add(entity.getId());
+            }
+        }
+        if (!invalid.isEmpty()) {
+            subscriptionsDeleted(invalid);
+        }
+        afterCommit(new Runnable() {
+            @Override
+            public void run() {
+                for (IndexedSubscription previous : index.putAll(subscriptions)) {
+                    invalidate(previous);
+                }
+                for (IndexedSubscription subscription : subscriptions) {
+                    invalidate(subscription);
+                }
+            }
+        });
+    }
+
+    /**
+     * Applies a change of the enabled bit and validity period made without loading the subscription, the indexed
+     * conditions are kept. A subscription that is enabled but not indexed, because it was disabled when the index was
+     * loaded, is read in the current transaction and indexed with its conditions once committed.
+     */
+    public void subscriptionStateChanged(final Long id, final boolean enabled, final Date startDate, final Date endDate) {
+        final IndexedSubscription loaded = enabled && index.get(id) == null ? load(id) : null;
+        afterCommit(new Runnable() {
+            @Override
+            public void run() {
+                IndexedSubscription current = index.get(id);
+                if (current == null) {
+                    current = loaded;
+                }
+                if (current != null) {
+                    IndexedSubscription changed = current.withState(enabled, startDate, endDate);
+                    invalidate(index.put(changed));
+                    invalidate(changed);
+                }
+            }
+        });
+    }
+
+    public void subscriptionDeleted(final Long id) {
+        afterCommit(new Runnable() {
+            @Override
+            public void run() {
+                invalidate(index.remove(id));
+                compiledConditions.evict(id);
+            }
+        });
+    }
+
+    /**
+     * Batch variant of {@link #subscriptionDeleted}, the index is updated once for all the subscriptions.
+     */
+    public void subscriptionsDeleted(final List<Long> ids) {
+        afterCommit(new Runnable() {
+            @Override
+            public void run() {
+                for (IndexedSubscription removed : index.removeAll(ids)) {
+                    invalidate(removed);
+                }
+                for (Long id : ids) {
+                    compiledConditions.evict(id);
+                }
+            }
+        });
+    }
+
+    private void invalidate(IndexedSubscription subscription) {
+        if (subscription != null) {
+            decisionCache.invalidate(subscription.getMessageType(), subscription.getOrganisation());
+        }
+    }
+
+    private IndexedSubscription load(Long id) {
+        SubscriptionEntity entity = em.find(SubscriptionEntity.class, id);
+        if (entity == null) {
+            return null;
+        }
+        try {
+            return snapshot(entity);
+        } catch (IllegalArgumentException e) {
+            log.error("[ERROR] Invalid conditions on subscription {}, it will not be matched", id, e);
+            return null;
+        }
+    }
+
+    /**
+     * The conditions are only changed together with their subscription, whose version then increases, so the compiled
+     * tree of an unchanged subscription is reused.
+     */
+    private IndexedSubscription snapshot(SubscriptionEntity entity) {
+        return IndexedSubscription.of(entity, compiledConditions.get(entity.getId(), entity.getVersion(), entity.getConditions()));
+    }
+
+    private void afterCommit(final Runnable action) {
+        if (transactionRegistry.getTransactionKey() == null) {
+            action.run();
+            return;
+        }
+        transactionRegistry.registerInterposedSynchronization(new Synchronization() {
+            @Override
+            public void beforeCompletion() {
+                // nothing to do before the commit
+            }
+
+            @Override
+            public void afterCompletion(int status) {
+                if (status == Status.STATUS_COMMITTED) {
+                    action.run();
+                }
+            }
+        });
+    }
+}
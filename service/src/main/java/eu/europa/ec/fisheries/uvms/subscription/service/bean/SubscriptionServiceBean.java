@@ -11,49 +11,74 @@
 package eu.europa.ec.fisheries.uvms.subscription.service.bean;
 
 import static eu.europa.ec.fisheries.uvms.audit.model.mapper.AuditLogMapper.mapToAuditLog;
+import static eu.europa.ec.fisheries.uvms.commons.date.DateUtils.END_OF_TIME;
+import static eu.europa.ec.fisheries.uvms.commons.date.DateUtils.nowUTC;
 import static eu.europa.ec.fisheries.wsdl.subscription.module.MessageType.FLUX_FA_QUERY_MESSAGE;
 import static eu.europa.ec.fisheries.wsdl.subscription.module.SubscriptionPermissionAnswer.NO;
 import static eu.europa.ec.fisheries.wsdl.subscription.module.SubscriptionPermissionAnswer.YES;
 
 import com.fasterxml.jackson.databind.ObjectMapper;
 import eu.europa.ec.fisheries.uvms.commons.message.api.MessageException;
-import eu.europa.ec.fisheries.uvms.commons.message.impl.JAXBUtils;
 import eu.europa.ec.fisheries.uvms.commons.rest.dto.PaginationDto;
 import eu.europa.ec.fisheries.uvms.commons.service.interceptor.AuditActionEnum;
 import eu.europa.ec.fisheries.uvms.commons.service.interceptor.ValidationInterceptor;
+import eu.europa.ec.fisheries.uvms.subscription.service.dao.SubscriptionCursor;
 import eu.europa.ec.fisheries.uvms.subscription.service.dao.SubscriptionDao;
 import eu.europa.ec.fisheries.uvms.subscription.service.domain.SubscriptionEntity;
+import eu.europa.ec.fisheries.uvms.subscription.service.dto.BulkItemResultDto;
+import eu.europa.ec.fisheries.uvms.subscription.service.dto.BulkResultDto;
 import eu.europa.ec.fisheries.uvms.subscription.service.dto.ColumnType;
 import eu.europa.ec.fisheries.uvms.subscription.service.dto.DirectionType;
 import eu.europa.ec.fisheries.uvms.subscription.service.dto.OrderByDto;
+import eu.europa.ec.fisheries.uvms.subscription.service.dto.PermissionCacheStatisticsDto;
 import eu.europa.ec.fisheries.uvms.subscription.service.dto.QueryParameterDto;
+import eu.europa.ec.fisheries.uvms.subscription.service.dto.SubscriptionExportFormat;
 import eu.europa.ec.fisheries.uvms.subscription.service.dto.SubscriptionDto;
 import eu.europa.ec.fisheries.uvms.subscription.service.dto.SubscriptionListResponseDto;
+import eu.europa.ec.fisheries.uvms.subscription.service.dto.SubscriptionStateDto;
+import eu.europa.ec.fisheries.uvms.subscription.service.dto.SubscriptionSummaryDto;
+import eu.europa.ec.fisheries.uvms.subscription.service.exception.SubscriptionConflictException;
+import eu.europa.ec.fisheries.uvms.subscription.service.export.SubscriptionExportWriter;
+import eu.europa.ec.fisheries.uvms.subscription.service.index.PermissionQuery;
 import eu.europa.ec.fisheries.uvms.subscription.service.mapper.SubscriptionMapper;
 import eu.europa.ec.fisheries.uvms.subscription.service.messaging.SubscriptionAuditProducer;
 import eu.europa.ec.fisheries.uvms.subscription.service.messaging.SubscriptionProducerBean;
-import eu.europa.ec.fisheries.uvms.user.model.mapper.UserModuleRequestMapper;
+import eu.europa.ec.fisheries.wsdl.subscription.module.SubscriptionBatchPermissionAnswer;
+import eu.europa.ec.fisheries.wsdl.subscription.module.SubscriptionBatchPermissionResponse;
+import eu.europa.ec.fisheries.wsdl.subscription.module.SubscriptionBatchQuery;
 import eu.europa.ec.fisheries.wsdl.subscription.module.SubscriptionDataQuery;
-import eu.europa.ec.fisheries.wsdl.subscription.module.SubscriptionPermissionAnswer;
 import eu.europa.ec.fisheries.wsdl.subscription.module.SubscriptionPermissionResponse;
-import eu.europa.ec.fisheries.wsdl.user.module.FindOrganisationsResponse;
-import eu.europa.ec.fisheries.wsdl.user.types.Organisation;
 import eu.europa.ec.fisheries.uvms.subscription.service.mapper.CustomMapper;
-import javax.jms.TextMessage;
+import eu.europa.ec.fisheries.uvms.subscription.service.mapper.OrganisationLookup;
 
+import java.io.OutputStream;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Date;
 import java.util.HashMap;
+import java.util.HashSet;
 import java.util.List;
 import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
 import javax.annotation.PostConstruct;
 import javax.ejb.EJB;
 import javax.ejb.LocalBean;
 import javax.ejb.Stateless;
 import javax.inject.Inject;
+import javax.persistence.OptimisticLockException;
 import javax.interceptor.Interceptors;
+import javax.validation.ConstraintViolation;
+import javax.validation.Valid;
+import javax.validation.Validator;
 import javax.validation.constraints.NotNull;
 import lombok.SneakyThrows;
 import lombok.extern.slf4j.Slf4j;
-import org.apache.commons.collections.CollectionUtils;
+import org.apache.commons.lang.StringUtils;
+import org.hibernate.ScrollableResults;
 
 @Stateless
 @LocalBean
@@ -61,20 +86,24 @@ import org.apache.commons.collections.CollectionUtils;
 public class SubscriptionServiceBean extends BaseSubscriptionBean {
 
     private static final String SUBSCRIPTION = "SUBSCRIPTION";
+    private static final String ORGANISATION_LOOKUP_TIMEOUT = "organisation_lookup_timeout_ms";
+    private static final long DEFAULT_ORGANISATION_LOOKUP_TIMEOUT = 2000L;
+    private static final int EXPORT_FETCH_SIZE = 500;
+    private static final int BULK_FLUSH_SIZE = 50; // hibernate.jdbc.batch_size of the persistence unit
     private SubscriptionDao subscriptionDAO;
 
     @EJB
     private SubscriptionProducerBean producer;
 
     @EJB
-    private SubscriptionUserConsumerBean subscriptionUserConsumerBean;
-
-    @EJB
-    private SubscriptionUserProducerBean subscriptionUserProducerBean;
+    private OrganisationDirectoryBean organisationDirectory;
 
     @Inject
     private SubscriptionMapper mapper;
 
+    @Inject
+    private Validator validator;
+
     private ObjectMapper objectMapper = new ObjectMapper();
 
     @EJB
@@ -83,45 +112,116 @@ public class SubscriptionServiceBean extends BaseSubscriptionBean {
     @EJB
     private SubscriptionProducerBean subscriptionProducer;
 
+    @EJB
+    private SubscriptionIndexBean subscriptionIndex;
+
+    @EJB
+    private PropertiesBean properties;
+
+    private long organisationLookupTimeout = DEFAULT_ORGANISATION_LOOKUP_TIMEOUT;
+
     @PostConstruct
     public void init() {
         initEntityManager();
         subscriptionDAO = new SubscriptionDao(em);
+        String timeout = properties.getProperty(ORGANISATION_LOOKUP_TIMEOUT);
+        if (StringUtils.isNotBlank(timeout)) {
+            try {
+                organisationLookupTimeout = Long.parseLong(timeout.trim());
+            } catch (NumberFormatException e) {
+                log.error("[ERROR] Invalid {} {}, using {} ms", ORGANISATION_LOOKUP_TIMEOUT, timeout, DEFAULT_ORGANISATION_LOOKUP_TIMEOUT);
+            }
+        }
     }
 
     /**
-     * Check if the incoming message has a valid subscription
+     * Check if the incoming message has a valid subscription.
+     * Answered from the in-memory {@link SubscriptionIndexBean}, without a database round trip.
+     * A query with invalid criteria is answered NO.
      * @param query filter criteria to retrieve subscriptions to be triggered
      * @return SubscriptionPermissionResponse
      */
-    @SuppressWarnings("unchecked")
     public SubscriptionPermissionResponse hasActiveSubscriptions(SubscriptionDataQuery query) {
         SubscriptionPermissionResponse response = new SubscriptionPermissionResponse();
-/*        Map<String, Object> stringObjectMap = CustomMapper.mapCriteriaToQueryParameters(query);
-        stringObjectMap.put("strict", true); // only use exact match in query
-        List<SubscriptionEntity> subscriptionEntities = subscriptionDAO.listSubscriptions(stringObjectMap, new HashMap<ColumnType, DirectionType>(),  -1 , -1);
-        boolean empty = CollectionUtils.isEmpty(subscriptionEntities);
-        if (empty){
-            response.setSubscriptionCheck(NO);
-        } else {
-            response.setSubscriptionCheck(YES);
-        }*/
         // Business wants to returnpermission denied in case of FA Query for untill the real implementation has been done, in Activity and Subscriptions!
-        SubscriptionPermissionAnswer subscriptionPermissionAnswer = query.getMessageType() == FLUX_FA_QUERY_MESSAGE ? NO : YES;
-        response.setSubscriptionCheck(subscriptionPermissionAnswer);
+        if (query.getMessageType() == FLUX_FA_QUERY_MESSAGE) {
+            response.setSubscriptionCheck(NO);
+            return response;
+        }
+        PermissionQuery permissionQuery = toPermissionQuery(query);
+        response.setSubscriptionCheck(permissionQuery != null && subscriptionIndex.hasActiveSubscription(permissionQuery) ? YES : NO);
         return response;
     }
 
+    /**
+     * Check a batch of incoming messages in one pass over the in-memory {@link SubscriptionIndexBean}.
+     * Queries with invalid criteria are answered NO, the others are checked.
+     * @param queries the queries, each with the id the client uses to correlate the answer
+     * @return one SubscriptionPermissionResponse per query, in the order of the queries
+     */
+    public SubscriptionBatchPermissionResponse hasActiveSubscriptions(List<SubscriptionBatchQuery> queries) {
+        List<PermissionQuery> mapped = new ArrayList<>(queries.size());
+        List<PermissionQuery> permissionQueries = new ArrayList<>(queries.size());
+        for (SubscriptionBatchQuery query : queries) {
+            // same rule as for a single query, FA Query is always denied
+            PermissionQuery permissionQuery = query.getQuery().getMessageType() != FLUX_FA_QUERY_MESSAGE ? toPermissionQuery(query.getQuery()) : null;
+            mapped.add(permissionQuery);
+            if (permissionQuery != null) {
+                permissionQueries.add(permissionQuery);
+            }
+        }
+        boolean[] answers = subscriptionIndex.hasActiveSubscriptions(permissionQueries);
+        SubscriptionBatchPermissionResponse batchResponse = new SubscriptionBatchPermissionResponse();
+        int answer = 0;
+        for (int i = 0; i < queries.size(); i++) {
+            SubscriptionBatchQuery query = queries.get(i);
+            SubscriptionPermissionResponse response = new SubscriptionPermissionResponse();
+            if (mapped.get(i) == null) {
+                response.setSubscriptionCheck(NO);
+            } else {
+                response.setSubscriptionCheck(answers[answer++] ? YES : NO);
+            }
+            SubscriptionBatchPermissionAnswer batchAnswer = new SubscriptionBatchPermissionAnswer();
+            batchAnswer.setId(query.getId());
+            batchAnswer.setSubscriptionPermissionResponse(response);
+            batchResponse.getAnswers().add(batchAnswer);
+        }
+        return batchResponse;
+    }
+
+    /**
+     * @return the normalised query, null if its criteria are invalid
+     */
+    private static PermissionQuery toPermissionQuery(SubscriptionDataQuery query) {
+        try {
+            return CustomMapper.mapCriteriaToPermissionQuery(query);
+        } catch (IllegalArgumentException e) {
+            log.error("[ERROR] Invalid criteria in permission request, answering NO: {}", e.getMessage());
+            return null;
+        }
+    }
+
+    /**
+     * @return hit, miss and invalidation counters of the permission decision cache, and the number of coalesced checks
+     */
+    public PermissionCacheStatisticsDto getPermissionCacheStatistics() {
+        return subscriptionIndex.getPermissionCacheStatistics();
+    }
+
     /**
      * List subscriptions. Used over REST service.
      * @param parameters the query parameters
      * @param pagination the pagination parameters
+     * @param summary true to list {@link SubscriptionSummaryDto} instead of the subscriptions with their conditions and areas
      * @return page of listSubscriptions results
      */
     @SneakyThrows
     @Interceptors(ValidationInterceptor.class)
-    public SubscriptionListResponseDto listSubscriptions(@NotNull QueryParameterDto parameters, @NotNull PaginationDto pagination,
-                                                         @NotNull OrderByDto orderByDto, String scopeName, String roleName, String requester) {
+    public SubscriptionListResponseDto listSubscriptions(@NotNull QueryParameterDto parameters, @NotNull PaginationDto pagination, @NotNull OrderByDto orderByDto,
+                                                         boolean summary, String scopeName, String roleName, String requester) {
+
+        // the User module round trip runs while the database is queried
+        Future<OrganisationLookup> organisations = organisationDirectory.getOrganisations(scopeName, roleName, requester);
 
         SubscriptionListResponseDto responseDto = new SubscriptionListResponseDto();
 
@@ -136,50 +236,190 @@ public class SubscriptionServiceBean extends BaseSubscriptionBean {
         Map<ColumnType, DirectionType> orderMap = new HashMap<>();
         orderMap.put(orderByDto.getColumn(), orderByDto.getDirection());
 
-        List<SubscriptionEntity> subscriptionEntities = subscriptionDAO.listSubscriptions(map, orderMap,  -1 , -1);
+        long countResults = subscriptionDAO.countSubscriptions(map);
+
+        int firstResult = (page - 1) * pageSize;
 
-        Integer countResults = 0;
+        if (summary) {
+            List<SubscriptionSummaryDto> summaries = new ArrayList<>();
+            if (countResults > firstResult) {
+                summaries = subscriptionDAO.listSubscriptionSummaries(map, orderMap, firstResult, pageSize);
+            }
+            responseDto.setList(enrichSummaries(summaries, organisations));
+        }
+        else {
+            List<SubscriptionEntity> subscriptionEntities = new ArrayList<>();
+            if (countResults > firstResult) {
+                subscriptionEntities = subscriptionDAO.listSubscriptions(map, orderMap, firstResult , pageSize);
+            }
+            responseDto.setList(enrich(subscriptionEntities, organisations));
+        }
 
-        if (CollectionUtils.isNotEmpty(subscriptionEntities)){
-            countResults = subscriptionEntities.size();
+        if (firstResult >= 0) {
+            responseDto.setCurrentPage(page);
+            int totalNumberOfPages = (int) (countResults / pageSize);
+            responseDto.setTotalNumberOfPages(totalNumberOfPages + 1);
         }
 
-        int firstResult = (page - 1) * pageSize;
+        return responseDto;
+    }
+
 
-        subscriptionEntities = subscriptionDAO.listSubscriptions(map, orderMap, firstResult , pageSize);
+    /**
+     * List subscriptions with keyset pagination. Used over REST service when walking the whole list.
+     * @param parameters the query parameters
+     * @param pageSize the number of subscriptions per page
+     * @param cursor the next cursor of the previous page, empty or null for the first page
+     * @param summary true to list {@link SubscriptionSummaryDto} instead of the subscriptions with their conditions and areas
+     * @return page of listSubscriptions results with the cursor of the next page, if any
+     */
+    @SneakyThrows
+    @Interceptors(ValidationInterceptor.class)
+    public SubscriptionListResponseDto listSubscriptionsAfter(@NotNull QueryParameterDto parameters, @NotNull Integer pageSize, @NotNull OrderByDto orderByDto,
+                                                              String cursor, boolean summary, String scopeName, String roleName, String requester) {
 
-        String getAllOrganisationRequest = UserModuleRequestMapper.mapToGetAllOrganisationRequest(scopeName, roleName, requester);
+        if (pageSize <= 0) {
+            throw new IllegalArgumentException("The page size must be positive");
+        }
+        SubscriptionCursor after = StringUtils.isEmpty(cursor) ? null : SubscriptionCursor.decode(cursor);
+        ColumnType column = after != null ? after.getColumn() : orderByDto.getColumn();
+        DirectionType direction = after != null ? after.getDirection() : orderByDto.getDirection();
+
+        Future<OrganisationLookup> organisations = organisationDirectory.getOrganisations(scopeName, roleName, requester);
+
+        @SuppressWarnings("unchecked")
+        Map<String, Object> map = objectMapper.convertValue(parameters, Map.class);
+        map.put("strict", false); // only use LIKE query
 
-        String correlationID = subscriptionUserProducerBean.sendModuleMessage(getAllOrganisationRequest, subscriptionUserConsumerBean.getDestination());
+        SubscriptionListResponseDto responseDto = new SubscriptionListResponseDto();
 
-        if (correlationID != null){
+        // one row more than the page tells whether there is a next page
+        if (summary) {
+            List<SubscriptionSummaryDto> summaries = subscriptionDAO.listSubscriptionSummariesAfter(map, column, direction, after, pageSize + 1);
+            if (summaries.size() > pageSize) {
+                summaries = new ArrayList<>(summaries.subList(0, pageSize));
+                responseDto.setNextCursor(SubscriptionCursor.after(summaries.get(pageSize - 1), column, direction).encode());
+            }
+            responseDto.setList(enrichSummaries(summaries, organisations));
+        }
+        else {
+            List<SubscriptionEntity> subscriptionEntities = subscriptionDAO.listSubscriptionsAfter(map, column, direction, after, pageSize + 1);
+            if (subscriptionEntities.size() > pageSize) {
+                subscriptionEntities = new ArrayList<>(subscriptionEntities.subList(0, pageSize));
+                responseDto.setNextCursor(SubscriptionCursor.after(subscriptionEntities.get(pageSize - 1), column, direction).encode());
+            }
+            responseDto.setList(enrich(subscriptionEntities, organisations));
+        }
+        return responseDto;
+    }
 
-            TextMessage message = subscriptionUserConsumerBean.getMessage(correlationID, TextMessage.class );
+    /**
+     * Export all the subscriptions matching the parameters, written to the output as they are read from the database,
+     * without counting them first. The names of the organisations are looked up once for the whole export.
+     * @param parameters the query parameters
+     * @param format the format of the rows
+     * @param output the stream the rows are written to, left open
+     * @return the number of subscriptions exported
+     */
+    @SneakyThrows
+    @Interceptors(ValidationInterceptor.class)
+    public long exportSubscriptions(@NotNull QueryParameterDto parameters, @NotNull OrderByDto orderByDto, @NotNull SubscriptionExportFormat format,
+                                    @NotNull OutputStream output, String scopeName, String roleName, String requester) {
 
-            FindOrganisationsResponse responseMessage = JAXBUtils.unMarshallMessage( message.getText() , FindOrganisationsResponse.class);
+        Future<OrganisationLookup> organisations = organisationDirectory.getOrganisations(scopeName, roleName, requester);
 
-            List<Organisation> organisationList = responseMessage.getOrganisation();
+        @SuppressWarnings("unchecked")
+        Map<String, Object> map = objectMapper.convertValue(parameters, Map.class);
+        map.put("strict", false); // only use LIKE query
 
-            responseDto.setList(CustomMapper.enrichSubscriptionList(subscriptionEntities,organisationList));
+        Map<ColumnType, DirectionType> orderMap = new HashMap<>();
+        orderMap.put(orderByDto.getColumn(), orderByDto.getDirection());
 
-        }else
-            responseDto.setList( subscriptionEntities );
+        long exported = 0;
+        ScrollableResults results = subscriptionDAO.scrollSubscriptionSummaries(map, orderMap, EXPORT_FETCH_SIZE);
+        try (SubscriptionExportWriter writer = SubscriptionExportWriter.of(format, output)) {
+            OrganisationLookup lookup = awaitOrganisations(organisations);
+            while (results.next()) {
+                SubscriptionSummaryDto summary = (SubscriptionSummaryDto) results.get(0);
+                if (lookup != null) {
+                    CustomMapper.enrichSubscriptionSummary(summary, lookup);
+                }
+                writer.write(summary);
+                exported++;
+            }
+        } finally {
+            results.close();
+        }
+        log.info("[INFO] Exported {} subscriptions as {}", exported, format);
+        return exported;
+    }
 
-        if (firstResult >= 0) {
-            responseDto.setCurrentPage(page);
-            int totalNumberOfPages = (countResults / pageSize);
-            responseDto.setTotalNumberOfPages(totalNumberOfPages + 1);
+    /**
+     * Details of one subscription, with its conditions and areas.
+     * @param id the subscription id
+     * @return the subscription, null if there is none with this id
+     */
+    @Interceptors(ValidationInterceptor.class)
+    public SubscriptionEntity findSubscriptionDetails(@NotNull Long id, String scopeName, String roleName, String requester) {
+        Future<OrganisationLookup> organisations = organisationDirectory.getOrganisations(scopeName, roleName, requester);
+        SubscriptionEntity subscription = subscriptionDAO.findSubscriptionDetails(id);
+        if (subscription == null) {
+            return null;
         }
+        return enrich(Collections.singletonList(subscription), organisations).get(0);
+    }
 
-        return responseDto;
+    /**
+     * Adds the names of the organisations, end points and channels, read from the local copy of the User module
+     * directory.
+     */
+    private List<SubscriptionEntity> enrich(List<SubscriptionEntity> subscriptionEntities, Future<OrganisationLookup> pending) {
+        OrganisationLookup organisations = awaitOrganisations(pending);
+        if (organisations != null){
+            return CustomMapper.enrichSubscriptionList(subscriptionEntities, organisations);
+        }
+        return subscriptionEntities;
+    }
+
+    private List<SubscriptionSummaryDto> enrichSummaries(List<SubscriptionSummaryDto> summaries, Future<OrganisationLookup> pending) {
+        OrganisationLookup organisations = awaitOrganisations(pending);
+        if (organisations != null){
+            return CustomMapper.enrichSubscriptionSummaries(summaries, organisations);
+        }
+        return summaries;
+    }
+
+    /**
+     * @return the organisations of the pending lookup, null when the directory does not answer within the configured
+     * timeout: the subscriptions are then returned without the names
+     */
+    private OrganisationLookup awaitOrganisations(Future<OrganisationLookup> pending) {
+        try {
+            return pending.get(organisationLookupTimeout, TimeUnit.MILLISECONDS);
+        } catch (TimeoutException e) {
+            log.error("[ERROR] No organisations received within {} ms, listing subscriptions without names", organisationLookupTimeout);
+        } catch (ExecutionException e) {
+            log.error("[ERROR] Error while fetching organisations, listing subscriptions without names", e.getCause());
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            log.error("[ERROR] Interrupted while waiting for organisations, listing subscriptions without names");
+        }
+        return null;
     }
 
+    /**
+     * Reloads the local copy of the organisations, end points and channels of the User module.
+     */
+    public void refreshOrganisationDirectory() {
+        organisationDirectory.refresh();
+    }
 
     @SneakyThrows
     @Interceptors(ValidationInterceptor.class)
     public SubscriptionDto create(@NotNull SubscriptionDto subscription, @NotNull String currentUser) {
         SubscriptionEntity entity = mapper.mapDtoToEntity(subscription);
         SubscriptionEntity saved = subscriptionDAO.createEntity(entity);
+        subscriptionIndex.subscriptionSaved(saved);
         sendLogToAudit(mapToAuditLog(SUBSCRIPTION, AuditActionEnum.CREATE.name(), saved.getId().toString(), currentUser));
         return mapper.mapEntityToDto(saved);
     }
@@ -192,23 +432,287 @@ public class SubscriptionServiceBean extends BaseSubscriptionBean {
         if (entityById == null){
             throw new IllegalArgumentException("Unable to update entity: not found");
         }
+        if (isStale(subscription, entityById)) {
+            throw new SubscriptionConflictException(conflictMessage(subscription.getId()));
+        }
         mapper.updateEntity(subscription, entityById);
-        SubscriptionEntity subscriptionEntity = subscriptionDAO.updateEntity(entityById);
+        SubscriptionEntity subscriptionEntity;
+        try {
+            subscriptionEntity = subscriptionDAO.updateEntity(entityById);
+            subscriptionDAO.flush();
+        } catch (OptimisticLockException e) {
+            throw new SubscriptionConflictException(conflictMessage(subscription.getId()), e);
+        }
+        subscriptionIndex.subscriptionSaved(subscriptionEntity);
         sendLogToAudit(mapToAuditLog(SUBSCRIPTION, AuditActionEnum.MODIFY.name(), subscriptionEntity.getId().toString(), currentUser));
         return mapper.mapEntityToDto(subscriptionEntity);
     }
 
+    /**
+     * Enables or disables a subscription and sets its validity period with one conditional UPDATE, without loading
+     * the subscription, provided that nobody changed it since the version of the given state.
+     * @return the state as saved, with the new version
+     * @throws SubscriptionConflictException if the subscription is no longer at the version of the given state
+     */
+    @SneakyThrows
+    @Interceptors(ValidationInterceptor.class)
+    public SubscriptionStateDto updateState(@NotNull Long id, @NotNull @Valid SubscriptionStateDto state, @NotNull String currentUser) {
+        Date startDate = state.getStartDate() != null ? state.getStartDate() : nowUTC().toDate();
+        Date endDate = state.getEndDate() != null ? state.getEndDate() : END_OF_TIME.toDate();
+        if (startDate.after(endDate)) {
+            throw new IllegalArgumentException("Start date is after end date");
+        }
+        if (!subscriptionDAO.updateState(id, state.getVersion(), state.getActive(), startDate, endDate)) {
+            if (subscriptionDAO.findEntityById(SubscriptionEntity.class, id) == null) {
+                throw new IllegalArgumentException("Unable to update entity: not found");
+            }
+            throw new SubscriptionConflictException(conflictMessage(id));
+        }
+        subscriptionIndex.subscriptionStateChanged(id, state.getActive(), startDate, endDate);
+        sendLogToAudit(mapToAuditLog(SUBSCRIPTION, AuditActionEnum.MODIFY.name(), id.toString(), currentUser));
+        return new SubscriptionStateDto(state.getVersion() + 1, state.getActive(), startDate, endDate);
+    }
+
+    private static boolean isStale(SubscriptionDto subscription, SubscriptionEntity entity) {
+        return subscription.getVersion() != null && !subscription.getVersion().equals(entity.getVersion());
+    }
+
+    private static String conflictMessage(Long id) {
+        return "Subscription " + id + " was changed by another user, reload it and try again";
+    }
+
     @SneakyThrows
     @Interceptors(ValidationInterceptor.class)
     public void delete(@NotNull Long id, @NotNull String currentUser) {
         subscriptionDAO.deleteEntity(SubscriptionEntity.class, id);
+        subscriptionIndex.subscriptionDeleted(id);
         sendLogToAudit(mapToAuditLog(SUBSCRIPTION, AuditActionEnum.MODIFY.name(), String.valueOf(id), currentUser));
     }
 
+    /**
+     * Creates subscriptions in one transaction, their rows inserted in JDBC batches. Each subscription is validated on
+     * its own: those that are invalid or whose name is taken are reported as failed and skipped, the others are
+     * created. One audit record lists all the created subscriptions.
+     * @return the result of each subscription, in the order of the request
+     */
+    @SneakyThrows
+    @Interceptors(ValidationInterceptor.class)
+    public BulkResultDto createAll(@NotNull List<SubscriptionDto> subscriptions, @NotNull String currentUser) {
+        List<BulkItemResultDto> items = new ArrayList<>(subscriptions.size());
+        Map<String, Long> takenNames = subscriptionDAO.findIdsByName(names(subscriptions));
+        Set<String> batchNames = new HashSet<>();
+        List<SubscriptionEntity> entities = new ArrayList<>();
+        List<BulkItemResultDto> created = new ArrayList<>();
+
+        for (int i = 0; i < subscriptions.size(); i++) {
+            SubscriptionDto subscription = subscriptions.get(i);
+            String error = validate(subscription);
+            if (error == null && (takenNames.containsKey(subscription.getName()) || !batchNames.add(subscription.getName()))) {
+                error = "Name already used: " + subscription.getName();
+            }
+            if (error != null) {
+                items.add(BulkItemResultDto.failed(i, null, error));
+                continue;
+            }
+            SubscriptionEntity entity = mapper.mapDtoToEntity(subscription);
+            entity.setId(null);
+            entities.add(entity);
+            BulkItemResultDto item = BulkItemResultDto.succeeded(i, null);
+            created.add(item);
+            items.add(item);
+        }
+
+        subscriptionDAO.persistAll(entities, BULK_FLUSH_SIZE);
+
+        List<Long> ids = new ArrayList<>(entities.size());
+        for (int i = 0; i < entities.size(); i++) {
+            SubscriptionEntity entity = entities.get(i);
+            created.get(i).setId(entity.getId());
+            ids.add(entity.getId());
+        }
+        subscriptionIndex.subscriptionsSaved(entities);
+        auditAll(AuditActionEnum.CREATE, ids, currentUser);
+        return new BulkResultDto(items);
+    }
+
+    /**
+     * Updates subscriptions in one transaction, read in one query and written in JDBC batches. Subscriptions that are
+     * invalid, unknown, at another version than the one given or renamed to a taken name are reported as failed and
+     * left unchanged. One audit record lists all the updated subscriptions.
+     * <p>
+     * Versions are compared item by item when the subscriptions are read. A subscription changed by someone else
+     * between that read and the write of the batch fails the whole batch: nothing is updated.
+     * @return the result of each subscription, in the order of the request
+     * @throws SubscriptionConflictException if a subscription was changed concurrently with the batch
+     */
+    @SneakyThrows
+    @Interceptors(ValidationInterceptor.class)
+    public BulkResultDto updateAll(@NotNull List<SubscriptionDto> subscriptions, @NotNull String currentUser) {
+        List<BulkItemResultDto> items = new ArrayList<>(subscriptions.size());
+        List<Long> requestedIds = new ArrayList<>(subscriptions.size());
+        for (SubscriptionDto subscription : subscriptions) {
+            if (subscription != null && subscription.getId() != null) {
+                requestedIds.add(subscription.getId());
+            }
+        }
+        Map<Long, SubscriptionEntity> existing = subscriptionDAO.findSubscriptionsById(requestedIds);
+        Map<String, Long> takenNames = subscriptionDAO.findIdsByName(names(subscriptions));
+        Set<String> batchNames = new HashSet<>();
+        Set<Long> batchIds = new HashSet<>();
+        List<SubscriptionEntity> updated = new ArrayList<>();
+
+        for (int i = 0; i < subscriptions.size(); i++) {
+            SubscriptionDto subscription = subscriptions.get(i);
+            String error = validate(subscription);
+            Long id = subscription != null ? subscription.getId() : null;
+            if (error == null && id == null) {
+                error = "Missing id";
+            }
+            else if (error == null && !existing.containsKey(id)) {
+                error = "Unable to update entity: not found";
+            }
+            else if (error == null && !batchIds.add(id)) {
+                error = "Subscription listed more than once";
+            }
+            else if (error == null && isStale(subscription, existing.get(id))) {
+                error = "Version conflict: the subscription was changed by another user";
+            }
+            else if (error == null) {
+                Long owner = takenNames.get(subscription.getName());
+                if ((owner != null && !owner.equals(id)) || !batchNames.add(subscription.getName())) {
+                    error = "Name already used: " + subscription.getName();
+                }
+            }
+            if (error != null) {
+                items.add(BulkItemResultDto.failed(i, id, error));
+                continue;
+            }
+            SubscriptionEntity entity = existing.get(id);
+            mapper.updateEntity(subscription, entity);
+            updated.add(entity);
+            items.add(BulkItemResultDto.succeeded(i, id));
+        }
+
+        try {
+            subscriptionDAO.flush();
+        } catch (OptimisticLockException e) {
+            throw new SubscriptionConflictException("A subscription of the batch was changed by another user, nothing was updated", e);
+        }
+
+        List<Long> ids = new ArrayList<>(updated.size());
+        for (SubscriptionEntity entity : updated) {
+            ids.add(entity.getId());
+        }
+        subscriptionIndex.subscriptionsSaved(updated);
+        auditAll(AuditActionEnum.MODIFY, ids, currentUser);
+        return new BulkResultDto(items);
+    }
+
+    /**
+     * Deletes subscriptions in one transaction, with their conditions and areas, the rows deleted in JDBC batches.
+     * Unknown ids are reported as failed. One audit record lists all the deleted subscriptions. A subscription changed
+     * by someone else while the batch runs fails the whole batch: nothing is deleted.
+     * @return the result of each id, in the order of the request
+     * @throws SubscriptionConflictException if a subscription was changed concurrently with the batch
+     */
+    @SneakyThrows
+    @Interceptors(ValidationInterceptor.class)
+    public BulkResultDto deleteAll(@NotNull List<Long> ids, @NotNull String currentUser) {
+        List<BulkItemResultDto> items = new ArrayList<>(ids.size());
+        List<Long> requestedIds = new ArrayList<>(ids.size());
+        for (Long id : ids) {
+            if (id != null) {
+                requestedIds.add(id);
+            }
+        }
+        Map<Long, SubscriptionEntity> existing = subscriptionDAO.findSubscriptionsById(requestedIds);
+        Map<Long, SubscriptionEntity> removed = new HashMap<>();
+
+        for (int i = 0; i < ids.size(); i++) {
+            Long id = ids.get(i);
+            if (id == null) {
+                items.add(BulkItemResultDto.failed(i, null, "Missing id"));
+            }
+            else if (removed.containsKey(id)) {
+                items.add(BulkItemResultDto.failed(i, id, "Subscription listed more than once"));
+            }
+            else if (!existing.containsKey(id)) {
+                items.add(BulkItemResultDto.failed(i, id, "Unable to delete entity: not found"));
+            }
+            else {
+                removed.put(id, existing.get(id));
+                items.add(BulkItemResultDto.succeeded(i, id));
+            }
+        }
+
+        try {
+            subscriptionDAO.removeAll(removed.values(), BULK_FLUSH_SIZE);
+        } catch (OptimisticLockException e) {
+            throw new SubscriptionConflictException("A subscription of the batch was changed by another user, nothing was deleted", e);
+        }
+
+        subscriptionIndex.subscriptionsDeleted(new ArrayList<>(removed.keySet()));
+        auditAll(AuditActionEnum.MODIFY, new ArrayList<>(removed.keySet()), currentUser);
+        return new BulkResultDto(items);
+    }
+
+    private String validate(SubscriptionDto subscription) {
+        if (subscription == null) {
+            return "Missing subscription";
+        }
+        Set<ConstraintViolation<SubscriptionDto>> violations = validator.validate(subscription);
+        if (violations.isEmpty()) {
+            return null;
+        }
+        StringBuilder error = new StringBuilder();
+        for (ConstraintViolation<SubscriptionDto> violation : violations) {
+            if (error.length() > 0) {
+                error.append(", ");
+            }
+            error.append(violation.getPropertyPath()).append(" ").append(violation.getMessage());
+        }
+        return error.toString();
+    }
+
+    private static Set<String> names(List<SubscriptionDto> subscriptions) {
+        Set<String> names = new HashSet<>();
+        for (SubscriptionDto subscription : subscriptions) {
+            if (subscription != null && subscription.getName() != null) {
+                names.add(subscription.getName());
+            }
+        }
+        return names;
+    }
+
+    /**
+     * One audit record for all the subscriptions of a bulk operation, their ids separated by commas.
+     */
+    private void auditAll(AuditActionEnum action, List<Long> ids, String currentUser) throws MessageException {
+        if (!ids.isEmpty()) {
+            sendLogToAudit(mapToAuditLog(SUBSCRIPTION, action.name(), StringUtils.join(ids, ","), currentUser));
+        }
+    }
+
     public void sendLogToAudit(String log) throws MessageException {
         auditProducer.sendModuleMessage(log, subscriptionProducer.getDestination());
     }
 
+    /**
+     * @return the subscription of the given guid, null if there is none
+     */
+    @Interceptors(ValidationInterceptor.class)
+    public SubscriptionEntity findSubscriptionByGuid(@NotNull final String guid) {
+        return subscriptionDAO.findByGuid(guid);
+    }
+
+    /**
+     * @return the subscriptions of the given guids, unknown guids are left out
+     */
+    @Interceptors(ValidationInterceptor.class)
+    public List<SubscriptionEntity> findSubscriptionsByGuids(@NotNull final List<String> guids) {
+        return subscriptionDAO.findByGuids(new HashSet<>(guids));
+    }
+
     @Interceptors(ValidationInterceptor.class)
     public SubscriptionEntity findSubscriptionByName(@NotNull final String name) {
         Map<String, Object> parameters = new HashMap<>();
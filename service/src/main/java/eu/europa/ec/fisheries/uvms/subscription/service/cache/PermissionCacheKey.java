@@ -0,0 +1,61 @@
+/*
+ Developed by the European Commission - Directorate General for Maritime Affairs and Fisheries @ European Union, 2015-2016.
+
+ This file is part of the Integrated Fisheries Data Management (IFDM) Suite. The IFDM Suite is free software: you can redistribute it
+ and/or modify it under the terms of the GNU General Public License as published by the Free Software Foundation, either version 3 of
+ the License, or any later version. The IFDM Suite is distributed in the hope that it will be useful, but WITHOUT ANY WARRANTY;
+ without even the implied warranty of MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU General Public License for more
+ details. You should have received a copy of the GNU General Public License along with the IFDM Suite. If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package eu.europa.ec.fisheries.uvms.subscription.service.cache;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.SortedSet;
+import java.util.TreeSet;
+
+import eu.europa.ec.fisheries.uvms.subscription.service.domain.AccessibilityType;
+import eu.europa.ec.fisheries.uvms.subscription.service.domain.SubscriptionType;
+import eu.europa.ec.fisheries.uvms.subscription.service.index.PermissionQuery;
+import eu.europa.ec.fisheries.wsdl.subscription.module.MessageType;
+import eu.europa.ec.fisheries.wsdl.subscription.module.SubscriptionDataCriteria;
+import lombok.Value;
+
+/**
+ * Normalised, comparable form of a {@link PermissionQuery}. The generated {@link SubscriptionDataCriteria} have no value
+ * semantics, so the criteria are reduced to a sorted set of "criteria|subCriteria|value" strings; their order and
+ * duplicates do not change the outcome of the start conditions.
+ */
+@Value
+public class PermissionCacheKey {
+
+    private final MessageType messageType;
+    private final Long organisation;
+    private final Long endPoint;
+    private final Long channel;
+    private final AccessibilityType accessibility;
+    private final SubscriptionType subscriptionType;
+    private final Long startDate;
+    private final Long endDate;
+    private final List<String> criteria;
+
+    public static PermissionCacheKey of(PermissionQuery query) {
+        SortedSet<String> criteria = new TreeSet<>();
+        for (SubscriptionDataCriteria criterion : query.getCriteria()) {
+            if (criterion != null) {
+                criteria.add(criterion.getCriteria() + "|" + criterion.getSubCriteria() + "|" + criterion.getValue());
+            }
+        }
+        return new PermissionCacheKey(query.getMessageType(), query.getOrganisation(), query.getEndPoint(), query.getChannel(),
+                query.getAccessibility(), query.getSubscriptionType(), query.getStartDate(), query.getEndDate(), new ArrayList<>(criteria));
+    }
+
+    /**
+     * @return true if a subscription with the given messageType and organisation may change the decision cached for this key
+     */
+    public boolean isAffectedBy(MessageType subscriptionMessageType, Long subscriptionOrganisation) {
+        return (messageType == null || messageType == subscriptionMessageType)
+                && (organisation == null || organisation.equals(subscriptionOrganisation));
+    }
+}
@@ -0,0 +1,146 @@
+/*
+ Developed by the European Commission - Directorate General for Maritime Affairs and Fisheries @ European Union, 2015-2016.
+
+ This file is part of the Integrated Fisheries Data Management (IFDM) Suite. The IFDM Suite is free software: you can redistribute it
+ and/or modify it under the terms of the GNU General Public License as published by the Free Software Foundation, either version 3 of
+ the License, or any later version. The IFDM Suite is distributed in the hope that it will be useful, but WITHOUT ANY WARRANTY;
+ without even the implied warranty of MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU General Public License for more
+ details. You should have received a copy of the GNU General Public License along with the IFDM Suite. If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package eu.europa.ec.fisheries.uvms.subscription.service.cache;
+
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+import eu.europa.ec.fisheries.uvms.subscription.service.dto.PermissionCacheStatisticsDto;
+import eu.europa.ec.fisheries.wsdl.subscription.module.MessageType;
+
+/**
+ * Bounded, least recently used cache of permission decisions with a time to live.
+ * <p>
+ * A subscription change invalidates only the decisions it may affect, see {@link PermissionCacheKey#isAffectedBy}.
+ * Every invalidation also bumps a generation: a decision computed while an invalidation happened is not stored,
+ * so a lookup racing with a subscription change cannot put a stale decision back in the cache.
+ * Decisions for queries without validity period depend on the time of the check, the time to live bounds how long
+ * such a decision survives a subscription reaching the end of its validity period.
+ */
+public class PermissionDecisionCache {
+
+    private final int maxEntries;
+
+    private final long timeToLive;
+
+    private final Map<PermissionCacheKey, Decision> decisions;
+
+    private long generation;
+
+    private long hits;
+
+    private long misses;
+
+    private long evictions;
+
+    private long invalidations;
+
+    /**
+     * @param maxEntries maximum number of cached decisions
+     * @param timeToLive time to live of a decision, in milliseconds
+     */
+    public PermissionDecisionCache(final int maxEntries, long timeToLive) {
+        if (maxEntries <= 0 || timeToLive <= 0) {
+            throw new IllegalArgumentException("Cache size and time to live must be positive");
+        }
+        this.maxEntries = maxEntries;
+        this.timeToLive = timeToLive;
+        this.decisions = new LinkedHashMap<PermissionCacheKey, Decision>(16, 0.75f, true) {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<PermissionCacheKey, Decision> eldest) {
+                if (size() > maxEntries) {
+                    evictions++;
+                    return true;
+                }
+                return false;
+            }
+        };
+    }
+
+    /**
+     * @return the cached decision, null when absent or expired
+     */
+    public synchronized Boolean get(PermissionCacheKey key, long now) {
+        Decision decision = decisions.get(key);
+        if (decision == null) {
+            misses++;
+            return null;
+        }
+        if (decision.expiresAt <= now) {
+            decisions.remove(key);
+            evictions++;
+            misses++;
+            return null;
+        }
+        hits++;
+        return decision.allowed;
+    }
+
+    /**
+     * @return the current generation, to be passed to {@link #put} once the decision is computed
+     */
+    public synchronized long generation() {
+        return generation;
+    }
+
+    /**
+     * Store a decision, unless an invalidation happened since the given generation was read.
+     */
+    public synchronized void put(PermissionCacheKey key, boolean allowed, long generation, long now) {
+        if (generation == this.generation) {
+            decisions.put(key, new Decision(allowed, now + timeToLive));
+        }
+    }
+
+    /**
+     * Drop the decisions a subscription with the given messageType and organisation may affect.
+     */
+    public synchronized void invalidate(MessageType messageType, Long organisation) {
+        generation++;
+        Iterator<PermissionCacheKey> keys = decisions.keySet().iterator();
+        while (keys.hasNext()) {
+            if (keys.next().isAffectedBy(messageType, organisation)) {
+                keys.remove();
+                invalidations++;
+            }
+        }
+    }
+
+    public synchronized void clear() {
+        generation++;
+        invalidations += decisions.size();
+        decisions.clear();
+    }
+
+    public synchronized PermissionCacheStatisticsDto getStatistics() {
+        PermissionCacheStatisticsDto statistics = new PermissionCacheStatisticsDto();
+        statistics.setSize(decisions.size());
+        statistics.setMaxSize(maxEntries);
+        statistics.setTimeToLive(timeToLive);
+        statistics.setHits(hits);
+        statistics.setMisses(misses);
+        statistics.setEvictions(evictions);
+        statistics.setInvalidations(invalidations);
+        return statistics;
+    }
+
+    private static class Decision {
+
+        private final boolean allowed;
+        private final long expiresAt;
+
+        private Decision(boolean allowed, long expiresAt) {
+            this.allowed = allowed;
+            this.expiresAt = expiresAt;
+        }
+    }
+}
@@ -0,0 +1,112 @@
+/*
+ Developed by the European Commission - Directorate General for Maritime Affairs and Fisheries @ European Union, 2015-2016.
+
+ This file is part of the Integrated Fisheries Data Management (IFDM) Suite. The IFDM Suite is free software: you can redistribute it
+ and/or modify it under the terms of the GNU General Public License as published by the Free Software Foundation, either version 3 of
+ the License, or any later version. The IFDM Suite is distributed in the hope that it will be useful, but WITHOUT ANY WARRANTY;
+ without even the implied warranty of MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU General Public License for more
+ details. You should have received a copy of the GNU General Public License along with the IFDM Suite. If not, see <http://www.gnu.org/licenses/>.
+ */
+
+
+package eu.europa.ec.fisheries.uvms.subscription.service.cache;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * Cache of values loaded from a remote source and refreshed in the background once their time to live is over.
+ * <p>
+ * An expired value keeps being served until its refresh completes, or fails; a single refresh per key is in flight
+ * at any time: {@link #startRefresh} tells the one caller that must load the value, which then reports back with
+ * {@link #refreshed} or {@link #refreshFailed}.
+ */
+public class RefreshingCache<K, V> {
+
+    private final long timeToLive;
+
+    private final Map<K, Entry<V>> entries = new HashMap<>();
+
+    private final Set<K> refreshing = new HashSet<>();
+
+    /**
+     * @param timeToLive time after which a value is refreshed, in milliseconds
+     */
+    public RefreshingCache(long timeToLive) {
+        if (timeToLive <= 0) {
+            throw new IllegalArgumentException("Time to live must be positive");
+        }
+        this.timeToLive = timeToLive;
+    }
+
+    /**
+     * @return the value, expired or not, null when it was never loaded
+     */
+    public synchronized V get(K key) {
+        Entry<V> entry = entries.get(key);
+        return entry == null ? null : entry.value;
+    }
+
+    /**
+     * Claims the refresh of a key that is missing or expired.
+     * @return true if the caller must load the value, false if it is fresh or already being loaded
+     */
+    public synchronized boolean startRefresh(K key, long now) {
+        Entry<V> entry = entries.get(key);
+        if (entry != null && entry.expiresAt > now) {
+            return false;
+        }
+        return refreshing.add(key);
+    }
+
+    public synchronized void refreshed(K key, V value, long now) {
+        entries.put(key, new Entry<>(value, now + timeToLive));
+        refreshing.remove(key);
+    }
+
+    /**
+     * The previous value, if any, is kept and served until the next refresh.
+     */
+    public synchronized void refreshFailed(K key) {
+        refreshing.remove(key);
+    }
+
+    /**
+     * Expires all the values, they are still served until refreshed.
+     * @return the keys of the values
+     */
+    public synchronized List<K> expireAll() {
+        for (Map.Entry<K, Entry<V>> entry : entries.entrySet()) {
+            entry.setValue(new Entry<>(entry.getValue().value, Long.MIN_VALUE));
+        }
+        return new ArrayList<>(entries.keySet());
+    }
+
+    /**
+     * @return the keys of the values that are expired at the given time
+     */
+    public synchronized List<K> expiredKeys(long now) {
+        List<K> expired = new ArrayList<>();
+        for (Map.Entry<K, Entry<V>> entry : entries.entrySet()) {
+            if (entry.getValue().expiresAt <= now) {
+                expired.add(entry.getKey());
+            }
+        }
+        return expired;
+    }
+
+    private static class Entry<V> {
+
+        private final V value;
+        private final long expiresAt;
+
+        private Entry(V value, long expiresAt) {
+            this.value = value;
+            this.expiresAt = expiresAt;
+        }
+    }
+}
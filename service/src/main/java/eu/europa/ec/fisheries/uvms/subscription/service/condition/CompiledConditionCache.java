@@ -0,0 +1,73 @@
+/*
+ Developed by the European Commission - Directorate General for Maritime Affairs and Fisheries @ European Union, 2015-2016.
+
+ This file is part of the Integrated Fisheries Data Management (IFDM) Suite. The IFDM Suite is free software: you can redistribute it
+ and/or modify it under the terms of the GNU General Public License as published by the Free Software Foundation, either version 3 of
+ the License, or any later version. The IFDM Suite is distributed in the hope that it will be useful, but WITHOUT ANY WARRANTY;
+ without even the implied warranty of MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU General Public License for more
+ details. You should have received a copy of the GNU General Public License along with the IFDM Suite. If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package eu.europa.ec.fisheries.uvms.subscription.service.condition;
+
+import java.util.Collection;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+
+import eu.europa.ec.fisheries.uvms.subscription.service.domain.ConditionEntity;
+import eu.europa.ec.fisheries.uvms.subscription.service.domain.ConditionType;
+import lombok.Value;
+
+/**
+ * Compiled condition trees per subscription id, reused as long as the subscription version does not change.
+ * Subscriptions without id or version, not persisted yet, are compiled on every call.
+ */
+public class CompiledConditionCache {
+
+    private final ConcurrentMap<Long, CompiledCondition> compiled = new ConcurrentHashMap<>();
+
+    private volatile PredicateNetwork network;
+
+    public CompiledConditionCache(PredicateNetwork network) {
+        this.network = network;
+    }
+
+    public ConditionNode get(Long subscriptionId, Long version, Collection<ConditionEntity> conditions) {
+        if (subscriptionId == null || version == null) {
+            return ConditionCompiler.compile(ConditionType.START, conditions, network);
+        }
+        CompiledCondition cached = compiled.get(subscriptionId);
+        if (cached != null && cached.getVersion() == version.longValue()) {
+            return cached.getNode();
+        }
+        ConditionNode node = ConditionCompiler.compile(ConditionType.START, conditions, network);
+        compiled.put(subscriptionId, new CompiledCondition(version, node));
+        return node;
+    }
+
+    public void evict(Long subscriptionId) {
+        compiled.remove(subscriptionId);
+    }
+
+    public void clear() {
+        compiled.clear();
+    }
+
+    /**
+     * Drop every compiled tree and compile the next ones against the given network.
+     */
+    public void reset(PredicateNetwork network) {
+        this.network = network;
+        compiled.clear();
+    }
+
+    public int size() {
+        return compiled.size();
+    }
+
+    @Value
+    private static class CompiledCondition {
+        private final long version;
+        private final ConditionNode node;
+    }
+}
@@ -0,0 +1,142 @@
+/*
+ Developed by the European Commission - Directorate General for Maritime Affairs and Fisheries @ European Union, 2015-2016.
+
+ This file is part of the Integrated Fisheries Data Management (IFDM) Suite. The IFDM Suite is free software: you can redistribute it
+ and/or modify it under the terms of the GNU General Public License as published by the Free Software Foundation, either version 3 of
+ the License, or any later version. The IFDM Suite is distributed in the hope that it will be useful, but WITHOUT ANY WARRANTY;
+ without even the implied warranty of MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU General Public License for more
+ details. You should have received a copy of the GNU General Public License along with the IFDM Suite. If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package eu.europa.ec.fisheries.uvms.subscription.service.condition;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.List;
+
+import eu.europa.ec.fisheries.uvms.subscription.service.domain.CompositeType;
+import eu.europa.ec.fisheries.uvms.subscription.service.domain.ConditionEntity;
+import eu.europa.ec.fisheries.uvms.subscription.service.domain.ConditionType;
+
+/**
+ * Compiles the conditions of a subscription into an immutable {@link ConditionNode} tree.
+ * Conditions are taken in position order; start and end operators open and close groups and the
+ * composite type links a condition to the next one, AND binding tighter than OR.
+ * A condition without composite type followed by another condition is joined with AND.
+ * Leaves are registered in the given {@link PredicateNetwork}, identical predicates of different subscriptions share a slot.
+ */
+public class ConditionCompiler {
+
+    private static final Comparator<ConditionEntity> BY_POSITION = new Comparator<ConditionEntity>() {
+        @Override
+        public int compare(ConditionEntity left, ConditionEntity right) {
+            return Integer.compare(position(left), position(right));
+        }
+    };
+
+    private static final Object OPEN = '(';
+    private static final Object CLOSE = ')';
+
+    private ConditionCompiler(){
+
+    }
+
+    /**
+     * @throws IllegalArgumentException when the operators of the conditions do not form a valid expression
+     */
+    public static ConditionNode compile(ConditionType type, Collection<ConditionEntity> conditions, PredicateNetwork network) {
+        List<ConditionEntity> ordered = new ArrayList<>();
+        if (conditions != null) {
+            for (ConditionEntity condition : conditions) {
+                if (type == condition.getConditionType()) {
+                    ordered.add(condition);
+                }
+            }
+        }
+        if (ordered.isEmpty()) {
+            return ConditionNode.ALWAYS;
+        }
+        Collections.sort(ordered, BY_POSITION);
+        return new Parser(tokenize(ordered, network)).parse();
+    }
+
+    private static List<Object> tokenize(List<ConditionEntity> conditions, PredicateNetwork network) {
+        List<Object> tokens = new ArrayList<>();
+        for (int i = 0; i < conditions.size(); i++) {
+            ConditionEntity condition = conditions.get(i);
+            addParentheses(tokens, condition.getStartOperator(), '(', OPEN);
+            tokens.add(network.leaf(new ConditionPredicate(condition.getCriteriaType(), condition.getSubCriteriaType(), condition.getCondition(), condition.getValue())));
+            addParentheses(tokens, condition.getEndOperator(), ')', CLOSE);
+            if (i < conditions.size() - 1) {
+                tokens.add(condition.getCompositeType() == CompositeType.OR ? CompositeType.OR : CompositeType.AND);
+            }
+        }
+        return tokens;
+    }
+
+    private static void addParentheses(List<Object> tokens, String operator, char expected, Object token) {
+        if (operator == null) {
+            return;
+        }
+        for (int i = 0; i < operator.length(); i++) {
+            char c = operator.charAt(i);
+            if (c == expected) {
+                tokens.add(token);
+            } else if (!Character.isWhitespace(c)) {
+                throw new IllegalArgumentException("Unexpected operator '" + operator + "'");
+            }
+        }
+    }
+
+    private static int position(ConditionEntity condition) {
+        return condition.getPosition() == null ? 0 : condition.getPosition();
+    }
+
+    private static class Parser {
+
+        private final List<Object> tokens;
+        private int index;
+
+        Parser(List<Object> tokens) {
+            this.tokens = tokens;
+        }
+
+        ConditionNode parse() {
+            ConditionNode node = parseComposite(CompositeType.OR);
+            if (index != tokens.size()) {
+                throw new IllegalArgumentException("Unbalanced parentheses in conditions");
+            }
+            return node;
+        }
+
+        private ConditionNode parseComposite(CompositeType compositeType) {
+            List<ConditionNode> operands = new ArrayList<>();
+            operands.add(compositeType == CompositeType.OR ? parseComposite(CompositeType.AND) : parsePrimary());
+            while (index < tokens.size() && tokens.get(index) == compositeType) {
+                index++;
+                operands.add(compositeType == CompositeType.OR ? parseComposite(CompositeType.AND) : parsePrimary());
+            }
+            return operands.size() == 1 ? operands.get(0) : new ConditionGroup(compositeType, operands);
+        }
+
+        private ConditionNode parsePrimary() {
+            if (index >= tokens.size()) {
+                throw new IllegalArgumentException("Incomplete conditions");
+            }
+            Object token = tokens.get(index++);
+            if (token instanceof ConditionNode) {
+                return (ConditionNode) token;
+            }
+            if (token == OPEN) {
+                ConditionNode node = parseComposite(CompositeType.OR);
+                if (index >= tokens.size() || tokens.get(index++) != CLOSE) {
+                    throw new IllegalArgumentException("Unbalanced parentheses in conditions");
+                }
+                return node;
+            }
+            throw new IllegalArgumentException("Unexpected token " + token + " in conditions");
+        }
+    }
+}
@@ -0,0 +1,55 @@
+/*
+ Developed by the European Commission - Directorate General for Maritime Affairs and Fisheries @ European Union, 2015-2016.
+
+ This file is part of the Integrated Fisheries Data Management (IFDM) Suite. The IFDM Suite is free software: you can redistribute it
+ and/or modify it under the terms of the GNU General Public License as published by the Free Software Foundation, either version 3 of
+ the License, or any later version. The IFDM Suite is distributed in the hope that it will be useful, but WITHOUT ANY WARRANTY;
+ without even the implied warranty of MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU General Public License for more
+ details. You should have received a copy of the GNU General Public License along with the IFDM Suite. If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package eu.europa.ec.fisheries.uvms.subscription.service.condition;
+
+import java.util.List;
+
+import eu.europa.ec.fisheries.uvms.subscription.service.domain.CompositeType;
+
+/**
+ * Short-circuiting conjunction or disjunction of child nodes.
+ */
+public final class ConditionGroup implements ConditionNode {
+
+    private final CompositeType compositeType;
+    private final ConditionNode[] children;
+
+    ConditionGroup(CompositeType compositeType, List<ConditionNode> children) {
+        if (compositeType != CompositeType.AND && compositeType != CompositeType.OR) {
+            throw new IllegalArgumentException("Unsupported composite type " + compositeType);
+        }
+        this.compositeType = compositeType;
+        this.children = children.toArray(new ConditionNode[children.size()]);
+    }
+
+    @Override
+    public boolean evaluate(PredicateResults results) {
+        boolean shortCircuit = compositeType == CompositeType.OR;
+        for (ConditionNode child : children) {
+            if (child.evaluate(results) == shortCircuit) {
+                return shortCircuit;
+            }
+        }
+        return !shortCircuit;
+    }
+
+    @Override
+    public String toString() {
+        StringBuilder sb = new StringBuilder("(");
+        for (int i = 0; i < children.length; i++) {
+            if (i > 0) {
+                sb.append(compositeType == CompositeType.AND ? " && " : " || ");
+            }
+            sb.append(children[i]);
+        }
+        return sb.append(")").toString();
+    }
+}
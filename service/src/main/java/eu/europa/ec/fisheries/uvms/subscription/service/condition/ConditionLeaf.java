@@ -0,0 +1,37 @@
+/*
+ Developed by the European Commission - Directorate General for Maritime Affairs and Fisheries @ European Union, 2015-2016.
+
+ This file is part of the Integrated Fisheries Data Management (IFDM) Suite. The IFDM Suite is free software: you can redistribute it
+ and/or modify it under the terms of the GNU General Public License as published by the Free Software Foundation, either version 3 of
+ the License, or any later version. The IFDM Suite is distributed in the hope that it will be useful, but WITHOUT ANY WARRANTY;
+ without even the implied warranty of MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU General Public License for more
+ details. You should have received a copy of the GNU General Public License along with the IFDM Suite. If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package eu.europa.ec.fisheries.uvms.subscription.service.condition;
+
+/**
+ * Leaf of a compiled condition tree, referencing a shared predicate of the {@link PredicateNetwork}.
+ */
+public final class ConditionLeaf implements ConditionNode {
+
+    private final int slot;
+
+    ConditionLeaf(int slot) {
+        this.slot = slot;
+    }
+
+    @Override
+    public boolean evaluate(PredicateResults results) {
+        return results.get(slot);
+    }
+
+    public int getSlot() {
+        return slot;
+    }
+
+    @Override
+    public String toString() {
+        return "#" + slot;
+    }
+}
@@ -0,0 +1,135 @@
+/*
+ Developed by the European Commission - Directorate General for Maritime Affairs and Fisheries @ European Union, 2015-2016.
+
+ This file is part of the Integrated Fisheries Data Management (IFDM) Suite. The IFDM Suite is free software: you can redistribute it
+ and/or modify it under the terms of the GNU General Public License as published by the Free Software Foundation, either version 3 of
+ the License, or any later version. The IFDM Suite is distributed in the hope that it will be useful, but WITHOUT ANY WARRANTY;
+ without even the implied warranty of MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU General Public License for more
+ details. You should have received a copy of the GNU General Public License along with the IFDM Suite. If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package eu.europa.ec.fisheries.uvms.subscription.service.condition;
+
+import java.util.List;
+
+import eu.europa.ec.fisheries.uvms.subscription.service.domain.RelationalOperatorType;
+import eu.europa.ec.fisheries.wsdl.subscription.module.CriteriaType;
+import eu.europa.ec.fisheries.wsdl.subscription.module.SubCriteriaType;
+import eu.europa.ec.fisheries.wsdl.subscription.module.SubscriptionDataCriteria;
+import lombok.EqualsAndHashCode;
+
+/**
+ * Compares the criteria of an incoming message with the value of a single condition.
+ * Identical predicates of different subscriptions are shared through the {@link PredicateNetwork}.
+ * A criterion takes part in the comparison when its criteria and sub criteria type match those of the condition;
+ * a null type on the condition matches any criterion.
+ * EQ and the ordering operators hold when at least one criterion satisfies them, NE holds when none is equal.
+ */
+@EqualsAndHashCode
+public final class ConditionPredicate {
+
+    private final CriteriaType criteriaType;
+    private final SubCriteriaType subCriteriaType;
+    private final RelationalOperatorType operator;
+    private final String value;
+
+    public ConditionPredicate(CriteriaType criteriaType, SubCriteriaType subCriteriaType, RelationalOperatorType operator, String value) {
+        this.criteriaType = criteriaType;
+        this.subCriteriaType = subCriteriaType;
+        this.operator = operator == null ? RelationalOperatorType.EQ : operator;
+        this.value = value;
+    }
+
+    public boolean evaluate(List<SubscriptionDataCriteria> criteria) {
+        if (operator == RelationalOperatorType.UNKNOWN) {
+            return false;
+        }
+        boolean equalityOnly = operator == RelationalOperatorType.EQ || operator == RelationalOperatorType.NE;
+        for (int i = 0; i < criteria.size(); i++) {
+            SubscriptionDataCriteria criterion = criteria.get(i);
+            if (!appliesTo(criterion)) {
+                continue;
+            }
+            if (equalityOnly) {
+                if (equal(criterion.getValue(), value)) {
+                    return operator == RelationalOperatorType.EQ;
+                }
+            } else if (criterion.getValue() != null && value != null && holds(compare(criterion.getValue(), value))) {
+                return true;
+            }
+        }
+        return operator == RelationalOperatorType.NE;
+    }
+
+    private boolean appliesTo(SubscriptionDataCriteria criterion) {
+        return (criteriaType == null || criteriaType == criterion.getCriteria())
+                && (subCriteriaType == null || subCriteriaType == criterion.getSubCriteria());
+    }
+
+    private boolean holds(int comparison) {
+        switch (operator) {
+            case GT:
+                return comparison > 0;
+            case GE:
+                return comparison >= 0;
+            case LT:
+                return comparison < 0;
+            case LE:
+                return comparison <= 0;
+            default:
+                return false;
+        }
+    }
+
+    private static boolean equal(String left, String right) {
+        return left == null ? right == null : left.equals(right);
+    }
+
+    /**
+     * Compares unsigned integers by numeric value and anything else lexicographically, which also orders ISO dates.
+     */
+    static int compare(String left, String right) {
+        if (isDigits(left) && isDigits(right)) {
+            int leftLength = significantLength(left);
+            int rightLength = significantLength(right);
+            if (leftLength != rightLength) {
+                return leftLength < rightLength ? -1 : 1;
+            }
+            int leftOffset = left.length() - leftLength;
+            int rightOffset = right.length() - rightLength;
+            for (int i = 0; i < leftLength; i++) {
+                int diff = left.charAt(leftOffset + i) - right.charAt(rightOffset + i);
+                if (diff != 0) {
+                    return diff;
+                }
+            }
+            return 0;
+        }
+        return left.compareTo(right);
+    }
+
+    private static boolean isDigits(String value) {
+        if (value.isEmpty()) {
+            return false;
+        }
+        for (int i = 0; i < value.length(); i++) {
+            if (!Character.isDigit(value.charAt(i))) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    private static int significantLength(String digits) {
+        int i = 0;
+        while (i < digits.length() - 1 && digits.charAt(i) == '0') {
+            i++;
+        }
+        return digits.length() - i;
+    }
+
+    @Override
+    public String toString() {
+        return subCriteriaType + " " + operator + " \"" + value + "\"";
+    }
+}
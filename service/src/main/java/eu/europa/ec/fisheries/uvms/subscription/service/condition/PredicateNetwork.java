@@ -0,0 +1,70 @@
+/*
+ Developed by the European Commission - Directorate General for Maritime Affairs and Fisheries @ European Union, 2015-2016.
+
+ This file is part of the Integrated Fisheries Data Management (IFDM) Suite. The IFDM Suite is free software: you can redistribute it
+ and/or modify it under the terms of the GNU General Public License as published by the Free Software Foundation, either version 3 of
+ the License, or any later version. The IFDM Suite is distributed in the hope that it will be useful, but WITHOUT ANY WARRANTY;
+ without even the implied warranty of MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU General Public License for more
+ details. You should have received a copy of the GNU General Public License along with the IFDM Suite. If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package eu.europa.ec.fisheries.uvms.subscription.service.condition;
+
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import eu.europa.ec.fisheries.wsdl.subscription.module.SubscriptionDataCriteria;
+
+/**
+ * Shared predicate layer of the compiled condition trees, in the spirit of the alpha network of a Rete matcher.
+ * Every distinct {@link ConditionPredicate} gets a single slot, whatever the number of subscriptions using it;
+ * the trees only reference slots and the predicate behind a slot is evaluated at most once per incoming message.
+ * Slots are never reused, so a tree compiled against an older state of the network stays valid. A network only grows,
+ * a full reload of the subscriptions compiles them against a fresh one to drop the predicates nobody uses anymore.
+ */
+public class PredicateNetwork {
+
+    private static final int INITIAL_CAPACITY = 16;
+
+    private final Map<ConditionPredicate, Integer> slots = new HashMap<>();
+
+    /**
+     * Grown by doubling, the slots past {@link #size()} are empty.
+     */
+    private volatile ConditionPredicate[] predicates = new ConditionPredicate[INITIAL_CAPACITY];
+
+    private volatile int count;
+
+    /**
+     * @return the leaf node referencing the shared slot of the given predicate
+     */
+    public synchronized ConditionLeaf leaf(ConditionPredicate predicate) {
+        Integer slot = slots.get(predicate);
+        if (slot == null) {
+            slot = count;
+            ConditionPredicate[] extended = slot < predicates.length ? predicates : Arrays.copyOf(predicates, predicates.length * 2);
+            extended[slot] = predicate;
+            predicates = extended;
+            count = slot + 1;
+            slots.put(predicate, slot);
+        }
+        return new ConditionLeaf(slot);
+    }
+
+    /**
+     * @return the per message view on the predicates, evaluating each of them lazily and only once
+     */
+    public PredicateResults evaluate(List<SubscriptionDataCriteria> criteria) {
+        return new PredicateResults(this, criteria);
+    }
+
+    public int size() {
+        return count;
+    }
+
+    ConditionPredicate[] predicates() {
+        return predicates;
+    }
+}
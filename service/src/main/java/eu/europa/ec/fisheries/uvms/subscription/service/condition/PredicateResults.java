@@ -0,0 +1,57 @@
+/*
+ Developed by the European Commission - Directorate General for Maritime Affairs and Fisheries @ European Union, 2015-2016.
+
+ This file is part of the Integrated Fisheries Data Management (IFDM) Suite. The IFDM Suite is free software: you can redistribute it
+ and/or modify it under the terms of the GNU General Public License as published by the Free Software Foundation, either version 3 of
+ the License, or any later version. The IFDM Suite is distributed in the hope that it will be useful, but WITHOUT ANY WARRANTY;
+ without even the implied warranty of MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU General Public License for more
+ details. You should have received a copy of the GNU General Public License along with the IFDM Suite. If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package eu.europa.ec.fisheries.uvms.subscription.service.condition;
+
+import java.util.Arrays;
+import java.util.List;
+
+import eu.europa.ec.fisheries.wsdl.subscription.module.SubscriptionDataCriteria;
+
+/**
+ * Outcome of the shared predicates for one incoming message. Not thread safe, it lives for the duration of one check.
+ */
+public class PredicateResults {
+
+    private static final byte UNKNOWN = 0;
+    private static final byte FALSE = 1;
+    private static final byte TRUE = 2;
+
+    private final PredicateNetwork network;
+    private final List<SubscriptionDataCriteria> criteria;
+
+    private ConditionPredicate[] predicates;
+    private byte[] outcomes;
+    private int evaluated;
+
+    PredicateResults(PredicateNetwork network, List<SubscriptionDataCriteria> criteria) {
+        this.network = network;
+        this.criteria = criteria;
+    }
+
+    public boolean get(int slot) {
+        if (predicates == null || slot >= predicates.length || predicates[slot] == null) {
+            predicates = network.predicates();
+            outcomes = outcomes == null ? new byte[predicates.length] : Arrays.copyOf(outcomes, predicates.length);
+        }
+        if (outcomes[slot] == UNKNOWN) {
+            outcomes[slot] = predicates[slot].evaluate(criteria) ? TRUE : FALSE;
+            evaluated++;
+        }
+        return outcomes[slot] == TRUE;
+    }
+
+    /**
+     * @return the number of distinct predicates evaluated so far
+     */
+    public int getEvaluated() {
+        return evaluated;
+    }
+}
@@ -0,0 +1,208 @@
+/*
+ Developed by the European Commission - Directorate General for Maritime Affairs and Fisheries @ European Union, 2015-2016.
+
+ This file is part of the Integrated Fisheries Data Management (IFDM) Suite. The IFDM Suite is free software: you can redistribute it
+ and/or modify it under the terms of the GNU General Public License as published by the Free Software Foundation, either version 3 of
+ the License, or any later version. The IFDM Suite is distributed in the hope that it will be useful, but WITHOUT ANY WARRANTY;
+ without even the implied warranty of MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU General Public License for more
+ details. You should have received a copy of the GNU General Public License along with the IFDM Suite. If not, see <http://www.gnu.org/licenses/>.
+ */
+
+
+package eu.europa.ec.fisheries.uvms.subscription.service.dao;
+
+import java.nio.charset.StandardCharsets;
+import java.util.Base64;
+import java.util.Date;
+
+import eu.europa.ec.fisheries.uvms.subscription.service.domain.SubscriptionEntity;
+import eu.europa.ec.fisheries.uvms.subscription.service.domain.SubscriptionType;
+import eu.europa.ec.fisheries.uvms.subscription.service.domain.TriggerType;
+import eu.europa.ec.fisheries.uvms.subscription.service.dto.ColumnType;
+import eu.europa.ec.fisheries.uvms.subscription.service.dto.DirectionType;
+import eu.europa.ec.fisheries.uvms.subscription.service.dto.SubscriptionSummaryDto;
+import eu.europa.ec.fisheries.wsdl.subscription.module.MessageType;
+import lombok.EqualsAndHashCode;
+import lombok.Getter;
+
+/**
+ * Position in a subscription list walked with keyset pagination: the sort of the walk and the sort key of the last
+ * row returned, the id breaking ties. Handed to clients as an opaque string; the next page is read with a seek
+ * predicate on this key instead of an offset.
+ */
+@Getter
+@EqualsAndHashCode
+public final class SubscriptionCursor {
+
+    private static final String SEPARATOR = "|";
+
+    private final ColumnType column;
+
+    private final DirectionType direction;
+
+    private final Object value;
+
+    private final Long id;
+
+    public SubscriptionCursor(ColumnType column, DirectionType direction, Object value, Long id) {
+        if (column == null || direction == null || id == null) {
+            throw new IllegalArgumentException("A cursor needs a column, a direction and an id");
+        }
+        this.column = column;
+        this.direction = direction;
+        this.value = column == ColumnType.SUB_ID ? id : value;
+        this.id = id;
+    }
+
+    /**
+     * @return the cursor positioned after the given row
+     */
+    public static SubscriptionCursor after(SubscriptionEntity entity, ColumnType column, DirectionType direction) {
+        return new SubscriptionCursor(column, direction, sortValue(entity, column), entity.getId());
+    }
+
+    /**
+     * @return the cursor positioned after the given row of a summary page
+     */
+    public static SubscriptionCursor after(SubscriptionSummaryDto summary, ColumnType column, DirectionType direction) {
+        return new SubscriptionCursor(column, direction, sortValue(summary, column), summary.getId());
+    }
+
+    public static SubscriptionCursor decode(String cursor) {
+        try {
+            String decoded = new String(Base64.getUrlDecoder().decode(cursor), StandardCharsets.UTF_8);
+            String[] parts = decoded.split("\\" + SEPARATOR, 4);
+            if (parts.length != 4) {
+                throw new IllegalArgumentException("Invalid cursor " + cursor);
+            }
+            ColumnType column = ColumnType.valueOf(parts[0]);
+            return new SubscriptionCursor(column, DirectionType.valueOf(parts[1]), parseValue(column, parts[3]), Long.valueOf(parts[2]));
+        } catch (IllegalArgumentException e) {
+            // also covers the malformed base64, enum names and numbers
+            throw new IllegalArgumentException("Invalid cursor " + cursor, e);
+        }
+    }
+
+    public String encode() {
+        String raw = column.name() + SEPARATOR + direction.name() + SEPARATOR + id + SEPARATOR + formatValue(value);
+        return Base64.getUrlEncoder().withoutPadding().encodeToString(raw.getBytes(StandardCharsets.UTF_8));
+    }
+
+    /**
+     * Expression the walk is sorted on. The description is the only nullable sort column, nulls are sorted as empty
+     * strings so that the seek predicate does not depend on how the database orders them.
+     */
+    static String sortExpression(ColumnType column) {
+        if (column == ColumnType.DESCRIPTION) {
+            return "COALESCE(s.description, '')";
+        }
+        return "s." + column.propertyName();
+    }
+
+    /**
+     * Predicate selecting the rows after this cursor, with the parameters named lastValue and lastId. Ties on the sort
+     * column are always broken on ascending ids.
+     */
+    String seekPredicate() {
+        String comparison = direction == DirectionType.DESC ? " < " : " > ";
+        if (column == ColumnType.SUB_ID) {
+            return "s.id" + comparison + ":lastId";
+        }
+        String expression = sortExpression(column);
+        return "(" + expression + comparison + ":lastValue OR (" + expression + " = :lastValue AND s.id > :lastId))";
+    }
+
+    private static Object sortValue(SubscriptionEntity entity, ColumnType column) {
+        switch (column) {
+            case NAME:
+                return entity.getName();
+            case DESCRIPTION:
+                return entity.getDescription() == null ? "" : entity.getDescription();
+            case START_DATE:
+                return entity.getValidityPeriod().getStartDate();
+            case END_DATE:
+                return entity.getValidityPeriod().getEndDate();
+            case END_POINT:
+                return entity.getEndPoint();
+            case CHANNEL:
+                return entity.getChannel();
+            case ORGANISATION:
+                return entity.getOrganisation();
+            case ENABLED:
+                return entity.isEnabled();
+            case MESSAGE_TYPE:
+                return entity.getMessageType();
+            case SUBSCRIPTION_TYPE:
+                return entity.getSubscriptionType();
+            case TRIGGER_TYPE:
+                return entity.getTriggerType();
+            default:
+                return entity.getId();
+        }
+    }
+
+    private static Object sortValue(SubscriptionSummaryDto summary, ColumnType column) {
+        switch (column) {
+            case NAME:
+                return summary.getName();
+            case DESCRIPTION:
+                return summary.getDescription() == null ? "" : summary.getDescription();
+            case START_DATE:
+                return summary.getStartDate();
+            case END_DATE:
+                return summary.getEndDate();
+            case END_POINT:
+                return summary.getEndPoint();
+            case CHANNEL:
+                return summary.getChannel();
+            case ORGANISATION:
+                return summary.getOrganisation();
+            case ENABLED:
+                return summary.isEnabled();
+            case MESSAGE_TYPE:
+                return summary.getMessageType();
+            case SUBSCRIPTION_TYPE:
+                return summary.getSubscriptionType();
+            case TRIGGER_TYPE:
+                return summary.getTriggerType();
+            default:
+                return summary.getId();
+        }
+    }
+
+    private static String formatValue(Object value) {
+        if (value instanceof Date) {
+            return String.valueOf(((Date) value).getTime());
+        }
+        if (value instanceof Enum) {
+            return ((Enum<?>) value).name();
+        }
+        return String.valueOf(value);
+    }
+
+    private static Object parseValue(ColumnType column, String value) {
+        switch (column) {
+            case NAME:
+            case DESCRIPTION:
+                return value;
+            case START_DATE:
+            case END_DATE:
+                return new Date(Long.parseLong(value));
+            case END_POINT:
+            case CHANNEL:
+            case ORGANISATION:
+            case SUB_ID:
+                return Long.valueOf(value);
+            case ENABLED:
+                return Boolean.valueOf(value);
+            case MESSAGE_TYPE:
+                return MessageType.valueOf(value);
+            case SUBSCRIPTION_TYPE:
+                return SubscriptionType.valueOf(value);
+            case TRIGGER_TYPE:
+                return TriggerType.valueOf(value);
+            default:
+                throw new IllegalArgumentException("Unsupported cursor column " + column);
+        }
+    }
+}
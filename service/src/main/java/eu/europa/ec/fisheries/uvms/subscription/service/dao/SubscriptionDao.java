@@ -10,22 +10,29 @@
 
 package eu.europa.ec.fisheries.uvms.subscription.service.dao;
 
-import static eu.europa.ec.fisheries.uvms.subscription.service.domain.SubscriptionEntity.LIST_SUBSCRIPTION;
+import static eu.europa.ec.fisheries.uvms.subscription.service.domain.SubscriptionEntity.LIST_BY_IDS;
 
 import javax.interceptor.Interceptors;
 import javax.persistence.EntityManager;
 import javax.persistence.Query;
 import javax.validation.constraints.NotNull;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.Date;
+import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
 
-import eu.europa.ec.fisheries.uvms.commons.date.DateUtils;
 import eu.europa.ec.fisheries.uvms.commons.service.dao.AbstractDAO;
 import eu.europa.ec.fisheries.uvms.commons.service.interceptor.ValidationInterceptor;
 import eu.europa.ec.fisheries.uvms.subscription.service.domain.SubscriptionEntity;
 import eu.europa.ec.fisheries.uvms.subscription.service.dto.ColumnType;
 import eu.europa.ec.fisheries.uvms.subscription.service.dto.DirectionType;
+import eu.europa.ec.fisheries.uvms.subscription.service.dto.SubscriptionSummaryDto;
 import lombok.SneakyThrows;
+import org.hibernate.ScrollMode;
+import org.hibernate.ScrollableResults;
 import lombok.extern.slf4j.Slf4j;
 import org.apache.commons.collections.CollectionUtils;
 import org.apache.commons.collections.MapUtils;
@@ -33,8 +40,21 @@ import org.apache.commons.collections.MapUtils;
 @Slf4j
 public class SubscriptionDao extends AbstractDAO<SubscriptionEntity> {
 
-    private static final String START_DATE = "startDate";
-    private static final String END_DATE = "endDate";
+    private static final String SELECT_SUBSCRIPTIONS = "SELECT DISTINCT s FROM SubscriptionEntity s " +
+            "LEFT JOIN FETCH s.conditions c " +
+            "LEFT JOIN FETCH s.areas a";
+
+    private static final String SELECT_IDS = "SELECT s.id FROM SubscriptionEntity s";
+
+    private static final String SELECT_SUMMARIES = "SELECT NEW " + SubscriptionSummaryDto.class.getName() + "(" +
+            "s.id, s.name, s.guid, s.description, s.organisation, s.endPoint, s.channel, s.messageType, s.subscriptionType, " +
+            "s.enabled, s.validityPeriod.startDate, s.validityPeriod.endDate, s.triggerType, s.stateType) " +
+            "FROM SubscriptionEntity s";
+
+    private static final String COUNT_SUBSCRIPTIONS = "SELECT COUNT(s.id) FROM SubscriptionEntity s";
+
+    private static final String SELECT_IDS_BY_NAME = "SELECT s.name, s.id FROM SubscriptionEntity s WHERE s.name IN (:names)";
+
     private EntityManager em;
 
     public SubscriptionDao(EntityManager em) {
@@ -46,58 +66,278 @@ public class SubscriptionDao extends AbstractDAO<SubscriptionEntity> {
         return em;
     }
 
+    /**
+     * A page is read in two steps: the ordered ids of the page are selected with the limit and offset applied by the
+     * database, then the subscriptions of these ids are fetched with their conditions and areas. Paging the fetch join
+     * itself would make Hibernate load the whole result and page it in memory.
+     */
     @SneakyThrows
     @Interceptors(ValidationInterceptor.class)
     public List<SubscriptionEntity> listSubscriptions(@NotNull Map<String, Object> queryParameters, @NotNull Map<ColumnType, DirectionType> orderBy, @NotNull Integer firstResult, @NotNull Integer maxResult) {
 
-        String queryString = em.createNamedQuery(LIST_SUBSCRIPTION).unwrap(org.hibernate.Query.class).getQueryString();
-
         List resultList = null;
 
-        StringBuilder builder = new StringBuilder(queryString).append(" ORDER BY s.");//
+        SubscriptionListFilter filter = SubscriptionListFilter.of(queryParameters);
+
+        try {
+            if (firstResult >= 0 && maxResult > 0){
+                Query idQuery = createQuery(SELECT_IDS + filter.where() + orderBy(orderBy), filter);
+                idQuery.setFirstResult(firstResult);
+                idQuery.setMaxResults(maxResult);
+                resultList = findByIdsInOrder(idQuery.getResultList());
+            }
+            else {
+                resultList = createQuery(SELECT_SUBSCRIPTIONS + filter.where() + orderBy(orderBy), filter).getResultList();
+            }
+        }
+        catch (Exception e){
+            log.error(e.getLocalizedMessage(),e);
+        }
+        return resultList;
+    }
+
+    /**
+     * Keyset pagination: reads the page following the given cursor, or the first page when there is none, with a seek
+     * predicate on the sort key instead of an offset so that deep pages cost as much as the first one. The sort of
+     * the cursor takes precedence over the given column and direction.
+     */
+    @SneakyThrows
+    @Interceptors(ValidationInterceptor.class)
+    public List<SubscriptionEntity> listSubscriptionsAfter(@NotNull Map<String, Object> queryParameters, @NotNull ColumnType column, @NotNull DirectionType direction, SubscriptionCursor after, @NotNull Integer maxResult) {
+        return findByIdsInOrder(seekQuery(SELECT_IDS, queryParameters, column, direction, after, maxResult).getResultList());
+    }
+
+    /**
+     * Same page as {@link #listSubscriptions}, as a projection of the subscription columns: without the conditions and
+     * areas the limit and offset are applied by the database in a single query.
+     */
+    @SuppressWarnings("unchecked")
+    @Interceptors(ValidationInterceptor.class)
+    public List<SubscriptionSummaryDto> listSubscriptionSummaries(@NotNull Map<String, Object> queryParameters, @NotNull Map<ColumnType, DirectionType> orderBy, @NotNull Integer firstResult, @NotNull Integer maxResult) {
+        SubscriptionListFilter filter = SubscriptionListFilter.of(queryParameters);
+        Query query = createQuery(SELECT_SUMMARIES + filter.where() + orderBy(orderBy), filter);
+        if (firstResult >= 0 && maxResult > 0) {
+            query.setFirstResult(firstResult);
+            query.setMaxResults(maxResult);
+        }
+        return query.getResultList();
+    }
+
+    /**
+     * Same page as {@link #listSubscriptionsAfter}, as a projection of the subscription columns.
+     */
+    @SuppressWarnings("unchecked")
+    @Interceptors(ValidationInterceptor.class)
+    public List<SubscriptionSummaryDto> listSubscriptionSummariesAfter(@NotNull Map<String, Object> queryParameters, @NotNull ColumnType column, @NotNull DirectionType direction, SubscriptionCursor after, @NotNull Integer maxResult) {
+        return seekQuery(SELECT_SUMMARIES, queryParameters, column, direction, after, maxResult).getResultList();
+    }
+
+    /**
+     * Forward-only cursor over all the subscriptions matched by {@link #listSubscriptions}, as summaries read from the
+     * database by batches of the given fetch size. Projections are not managed by the persistence context, memory use
+     * does not grow with the number of rows. To be closed by the caller, within the transaction.
+     */
+    @Interceptors(ValidationInterceptor.class)
+    public ScrollableResults scrollSubscriptionSummaries(@NotNull Map<String, Object> queryParameters, @NotNull Map<ColumnType, DirectionType> orderBy, int fetchSize) {
+        SubscriptionListFilter filter = SubscriptionListFilter.of(queryParameters);
+        return createQuery(SELECT_SUMMARIES + filter.where() + orderBy(orderBy), filter)
+                .unwrap(org.hibernate.Query.class)
+                .setFetchSize(fetchSize)
+                .setReadOnly(true)
+                .scroll(ScrollMode.FORWARD_ONLY);
+    }
+
+    /**
+     * @return the subscription with its conditions and areas, null if there is none with this id
+     */
+    public SubscriptionEntity findSubscriptionDetails(@NotNull Long id) {
+        List<SubscriptionEntity> found = findByIdsInOrder(Collections.singletonList(id));
+        return found.isEmpty() ? null : found.get(0);
+    }
+
+    /**
+     * Counts the subscriptions matched by {@link #listSubscriptions} for the same parameters, without loading them.
+     */
+    @Interceptors(ValidationInterceptor.class)
+    public long countSubscriptions(@NotNull Map<String, Object> queryParameters) {
+        SubscriptionListFilter filter = SubscriptionListFilter.of(queryParameters);
+        return ((Number) createQuery(COUNT_SUBSCRIPTIONS + filter.where(), filter).getSingleResult()).longValue();
+    }
+
+    private static String orderBy(Map<ColumnType, DirectionType> orderBy) {
+
+        StringBuilder builder = new StringBuilder(" ORDER BY s.");
 
         if (MapUtils.isNotEmpty(orderBy)){
             Map.Entry<ColumnType, DirectionType> next = orderBy.entrySet().iterator().next();
             builder.append(next.getKey().propertyName()).append(" ").append(next.getValue().name());
+            if (next.getKey() != ColumnType.SUB_ID) {
+                // ties must come back in the same order on every page
+                builder.append(", s.id ASC");
+            }
         }
         else {
             builder.append("id ASC");
         }
+        return builder.toString();
+    }
+
+    private Query seekQuery(String select, Map<String, Object> queryParameters, ColumnType column, DirectionType direction, SubscriptionCursor after, Integer maxResult) {
+
+        if (after != null) {
+            column = after.getColumn();
+            direction = after.getDirection();
+        }
+
+        SubscriptionListFilter filter = SubscriptionListFilter.of(queryParameters);
+
+        StringBuilder builder = new StringBuilder(select);
+        builder.append(after != null ? filter.where(after.seekPredicate()) : filter.where());
+        builder.append(" ORDER BY ").append(SubscriptionCursor.sortExpression(column)).append(" ").append(direction.name());
+        if (column != ColumnType.SUB_ID) {
+            builder.append(", s.id ASC");
+        }
 
-        Query selectQuery = getEntityManager().createQuery(builder.toString());
+        Query query = createQuery(builder.toString(), filter);
+        if (after != null) {
+            query.setParameter("lastId", after.getId());
+            if (column != ColumnType.SUB_ID) {
+                query.setParameter("lastValue", after.getValue());
+            }
+        }
+        query.setMaxResults(maxResult);
+        return query;
+    }
 
-        Object startDate = queryParameters.get(START_DATE);
-        Object endDate = queryParameters.get(END_DATE);
+    private Query createQuery(String queryString, SubscriptionListFilter filter) {
+        Query selectQuery = getEntityManager().createQuery(queryString);
+        filter.bind(selectQuery);
+        return selectQuery;
+    }
 
-        if (startDate != null && endDate == null) {
-            queryParameters.put(END_DATE, DateUtils.END_OF_TIME.toDate());
+    /**
+     * @return the subscriptions of the given ids with their conditions and areas, by id, read in one query
+     */
+    public Map<Long, SubscriptionEntity> findSubscriptionsById(Collection<Long> ids) {
+        Map<Long, SubscriptionEntity> byId = new HashMap<>(ids.size() * 2);
+        if (ids.isEmpty()) {
+            return byId;
+        }
+        List<SubscriptionEntity> entities = em.createNamedQuery(LIST_BY_IDS, SubscriptionEntity.class)
+                .setParameter("ids", ids)
+                .getResultList();
+        for (SubscriptionEntity entity : entities) {
+            byId.put(entity.getId(), entity);
         }
+        return byId;
+    }
+
+    /**
+     * @return the subscription of the given guid with its conditions and areas, null if there is none
+     */
+    public SubscriptionEntity findByGuid(@NotNull String guid) {
+        List<SubscriptionEntity> found = em.createNamedQuery(SubscriptionEntity.BY_GUID, SubscriptionEntity.class)
+                .setParameter("guid", guid)
+                .getResultList();
+        return found.isEmpty() ? null : found.get(0);
+    }
 
-        if (endDate != null && startDate == null) {
-            queryParameters.put(START_DATE, DateUtils.START_OF_TIME.toDate());
+    /**
+     * @return the subscriptions of the given guids with their conditions and areas, read in one query. Unknown guids
+     * are left out.
+     */
+    public List<SubscriptionEntity> findByGuids(@NotNull Collection<String> guids) {
+        if (guids.isEmpty()) {
+            return new ArrayList<>();
         }
+        return em.createNamedQuery(SubscriptionEntity.LIST_BY_GUIDS, SubscriptionEntity.class)
+                .setParameter("guids", guids)
+                .getResultList();
+    }
 
-        if (endDate == null && startDate == null){
-            queryParameters.put(END_DATE, DateUtils.END_OF_TIME.toDate());
-            queryParameters.put(START_DATE, DateUtils.START_OF_TIME.toDate());
+    /**
+     * @return the ids of the subscriptions having one of the given names, by name
+     */
+    @SuppressWarnings("unchecked")
+    public Map<String, Long> findIdsByName(Collection<String> names) {
+        Map<String, Long> byName = new HashMap<>(names.size() * 2);
+        if (names.isEmpty()) {
+            return byName;
         }
+        List<Object[]> rows = em.createQuery(SELECT_IDS_BY_NAME).setParameter("names", names).getResultList();
+        for (Object[] row : rows) {
+            byName.put((String) row[0], (Long) row[1]);
+        }
+        return byName;
+    }
 
-        for (Map.Entry<String, Object> entry : queryParameters.entrySet()){
-            selectQuery.setParameter(entry.getKey(), entry.getValue());
+    /**
+     * Persists new subscriptions without flushing each of them, so that their rows are inserted in JDBC batches. The
+     * persistence context is flushed and cleared every flushSize subscriptions to keep it small: the given entities
+     * are detached afterwards.
+     */
+    public void persistAll(List<SubscriptionEntity> entities, int flushSize) {
+        for (int i = 0; i < entities.size(); i++) {
+            em.persist(entities.get(i));
+            if ((i + 1) % flushSize == 0) {
+                em.flush();
+                em.clear();
+            }
         }
+        em.flush();
+        em.clear();
+    }
 
-        if (firstResult >= 0 && maxResult > 0){
-            selectQuery.setFirstResult(firstResult);
-            selectQuery.setMaxResults(maxResult);
+    /**
+     * Removes managed subscriptions, their conditions and areas, the rows being deleted in JDBC batches.
+     */
+    public void removeAll(Collection<SubscriptionEntity> entities, int flushSize) {
+        int removed = 0;
+        for (SubscriptionEntity entity : entities) {
+            em.remove(entity);
+            if (++removed % flushSize == 0) {
+                em.flush();
+            }
         }
+        em.flush();
+    }
 
-        try {
-            resultList = selectQuery.getResultList();
+    /**
+     * Sets the enabled bit and validity period of a subscription in a single UPDATE, without loading it, provided
+     * that it is still at the given version. The version is incremented.
+     * @return false if there is no subscription of this id at this version
+     */
+    public boolean updateState(@NotNull Long id, @NotNull Long version, boolean enabled, @NotNull Date startDate, @NotNull Date endDate) {
+        int updated = em.createNamedQuery(SubscriptionEntity.UPDATE_STATE)
+                .setParameter("id", id)
+                .setParameter("version", version)
+                .setParameter("enabled", enabled)
+                .setParameter("startDate", startDate)
+                .setParameter("endDate", endDate)
+                .executeUpdate();
+        return updated == 1;
+    }
+
+    /**
+     * Writes the changes of the managed subscriptions, updates of the same table being sent in JDBC batches.
+     */
+    public void flush() {
+        em.flush();
+    }
+
+    private List<SubscriptionEntity> findByIdsInOrder(List<Long> ids) {
+        if (ids.isEmpty()) {
+            return new ArrayList<>();
         }
-        catch (Exception e){
-            log.error(e.getLocalizedMessage(),e);
+        Map<Long, SubscriptionEntity> byId = findSubscriptionsById(ids);
+        List<SubscriptionEntity> ordered = new ArrayList<>(ids.size());
+        for (Long id : ids) {
+            SubscriptionEntity entity = byId.get(id);
+            if (entity != null) {
+                ordered.add(entity);
+            }
         }
-        return resultList;
+        return ordered;
     }
 
     @SneakyThrows
@@ -112,4 +352,8 @@ public class SubscriptionDao extends AbstractDAO<SubscriptionEntity> {
         return entity;
 
     }
+
+    public List<SubscriptionEntity> listEnabledSubscriptions() {
+        return em.createNamedQuery(SubscriptionEntity.LIST_ENABLED, SubscriptionEntity.class).getResultList();
+    }
 }
@@ -0,0 +1,208 @@
+/*
+ Developed by the European Commission - Directorate General for Maritime Affairs and Fisheries @ European Union, 2015-2016.
+
+ This file is part of the Integrated Fisheries Data Management (IFDM) Suite. The IFDM Suite is free software: you can redistribute it
+ and/or modify it under the terms of the GNU General Public License as published by the Free Software Foundation, either version 3 of
+ the License, or any later version. The IFDM Suite is distributed in the hope that it will be useful, but WITHOUT ANY WARRANTY;
+ without even the implied warranty of MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU General Public License for more
+ details. You should have received a copy of the GNU General Public License along with the IFDM Suite. If not, see <http://www.gnu.org/licenses/>.
+ */
+
+
+package eu.europa.ec.fisheries.uvms.subscription.service.dao;
+
+import javax.persistence.Query;
+import java.text.ParseException;
+import java.text.SimpleDateFormat;
+import java.util.Date;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.TimeZone;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+
+import eu.europa.ec.fisheries.uvms.commons.date.DateUtils;
+import eu.europa.ec.fisheries.uvms.subscription.service.domain.AccessibilityType;
+import eu.europa.ec.fisheries.uvms.subscription.service.domain.SubscriptionType;
+import eu.europa.ec.fisheries.wsdl.subscription.module.MessageType;
+
+/**
+ * Where clause of the subscription list, holding only the predicates of the parameters that are set. In strict mode
+ * the organisation, end point, channel and message type are compared with plain equality so that their indexes can be
+ * used, otherwise they are matched as substrings. Substring matches on the name and description are written as
+ * UPPER(column) LIKE so that the trigram indexes on these expressions serve them on PostgreSQL. The clause depends on
+ * nothing but the set of parameters given and the mode, it is built once per such shape so that the same query
+ * strings, and their plans, are reused.
+ */
+final class SubscriptionListFilter {
+
+    private static final String[] FIELDS = {
+            "name", "description", "search", "channel", "organisation", "endPoint", "messageType", "subscriptionType", "accessibility", "enabled"
+    };
+
+    private static final String STRICT = "strict";
+
+    private static final String START_DATE = "startDate";
+
+    private static final String END_DATE = "endDate";
+
+    private static final int VALIDITY = 1 << FIELDS.length;
+
+    private static final int STRICT_MODE = VALIDITY << 1;
+
+    private static final ConcurrentMap<Integer, String> PREDICATES = new ConcurrentHashMap<>();
+
+    private final int shape;
+
+    private final Map<String, Object> parameters;
+
+    private SubscriptionListFilter(int shape, Map<String, Object> parameters) {
+        this.shape = shape;
+        this.parameters = parameters;
+    }
+
+    static SubscriptionListFilter of(Map<String, Object> queryParameters) {
+        boolean strict = Boolean.TRUE.equals(queryParameters.get(STRICT));
+        int shape = strict ? STRICT_MODE : 0;
+        Map<String, Object> parameters = new HashMap<>();
+        for (int i = 0; i < FIELDS.length; i++) {
+            Object value = queryParameters.get(FIELDS[i]);
+            if (value != null) {
+                shape |= 1 << i;
+                parameters.put(FIELDS[i], convert(FIELDS[i], value, strict));
+            }
+        }
+        Object startDate = queryParameters.get(START_DATE);
+        Object endDate = queryParameters.get(END_DATE);
+        if (startDate != null || endDate != null) {
+            shape |= VALIDITY;
+            parameters.put(START_DATE, startDate != null ? toDate(startDate) : DateUtils.START_OF_TIME.toDate());
+            parameters.put(END_DATE, endDate != null ? toDate(endDate) : DateUtils.END_OF_TIME.toDate());
+        }
+        return new SubscriptionListFilter(shape, parameters);
+    }
+
+    /**
+     * @return the where clause, empty when no parameter is set
+     */
+    String where() {
+        String predicates = predicates();
+        return predicates.isEmpty() ? "" : " WHERE " + predicates;
+    }
+
+    /**
+     * @return the where clause with the given predicate added
+     */
+    String where(String predicate) {
+        String predicates = predicates();
+        return " WHERE " + (predicates.isEmpty() ? predicate : predicates + " AND " + predicate);
+    }
+
+    void bind(Query query) {
+        for (Map.Entry<String, Object> entry : parameters.entrySet()) {
+            query.setParameter(entry.getKey(), entry.getValue());
+        }
+    }
+
+    private String predicates() {
+        String predicates = PREDICATES.get(shape);
+        if (predicates == null) {
+            predicates = build(shape);
+            PREDICATES.putIfAbsent(shape, predicates);
+        }
+        return predicates;
+    }
+
+    private static String build(int shape) {
+        boolean strict = (shape & STRICT_MODE) != 0;
+        StringBuilder builder = new StringBuilder();
+        for (int i = 0; i < FIELDS.length; i++) {
+            if ((shape & (1 << i)) != 0) {
+                if (builder.length() > 0) {
+                    builder.append(" AND ");
+                }
+                builder.append(predicate(FIELDS[i], strict));
+            }
+        }
+        if ((shape & VALIDITY) != 0) {
+            if (builder.length() > 0) {
+                builder.append(" AND ");
+            }
+            builder.append("s.validityPeriod.startDate <= cast(:endDate as timestamp) AND s.validityPeriod.endDate >= cast(:startDate as timestamp)");
+        }
+        return builder.toString();
+    }
+
+    private static String predicate(String field, boolean strict) {
+        switch (field) {
+            case "name":
+            case "description":
+                return "UPPER(s." + field + ") LIKE :" + field;
+            case "search":
+                return "(UPPER(s.name) LIKE :search OR UPPER(s.description) LIKE :search)";
+            case "channel":
+            case "organisation":
+            case "endPoint":
+                return strict ? "s." + field + " = :" + field : "cast(s." + field + " as string) LIKE :" + field;
+            case "messageType":
+                return strict ? "s.messageType = :messageType" : "cast(s.messageType as string) LIKE :messageType";
+            default:
+                return "s." + field + " = :" + field;
+        }
+    }
+
+    /**
+     * Parameters coming from the REST layer are converted to a map by Jackson, numbers and enumerations may come as
+     * integers and strings and are brought back to the type of the property here.
+     */
+    private static Object convert(String field, Object value, boolean strict) {
+        switch (field) {
+            case "name":
+            case "description":
+            case "search":
+                return contains(value);
+            case "channel":
+            case "organisation":
+            case "endPoint":
+                if (!strict) {
+                    return "%" + value + "%";
+                }
+                return value instanceof Number ? Long.valueOf(((Number) value).longValue()) : Long.valueOf(value.toString());
+            case "messageType":
+                if (!strict) {
+                    return contains(value);
+                }
+                return value instanceof MessageType ? value : MessageType.valueOf(value.toString().toUpperCase());
+            case "subscriptionType":
+                return value instanceof SubscriptionType ? value : SubscriptionType.valueOf(value.toString().toUpperCase());
+            case "accessibility":
+                return value instanceof AccessibilityType ? value : AccessibilityType.valueOf(value.toString().toUpperCase());
+            default:
+                return value instanceof Boolean ? value : Boolean.valueOf(value.toString());
+        }
+    }
+
+    /**
+     * Dates are written by Jackson in {@link DateUtils#DATE_TIME_UI_FORMAT}, in UTC, or as milliseconds.
+     */
+    private static Date toDate(Object value) {
+        if (value instanceof Date) {
+            return (Date) value;
+        }
+        if (value instanceof Number) {
+            return new Date(((Number) value).longValue());
+        }
+        SimpleDateFormat format = new SimpleDateFormat(DateUtils.DATE_TIME_UI_FORMAT);
+        format.setTimeZone(TimeZone.getTimeZone("UTC"));
+        try {
+            return format.parse(value.toString());
+        } catch (ParseException e) {
+            throw new IllegalArgumentException("Invalid date " + value + ", expected " + DateUtils.DATE_TIME_UI_FORMAT, e);
+        }
+    }
+
+    private static String contains(Object value) {
+        String text = value instanceof Enum ? ((Enum<?>) value).name() : value.toString();
+        return "%" + text.toUpperCase() + "%";
+    }
+}
@@ -12,7 +12,7 @@ package eu.europa.ec.fisheries.uvms.subscription.service.domain;
 
 import static javax.persistence.EnumType.STRING;
 import static javax.persistence.FetchType.LAZY;
-import static javax.persistence.GenerationType.AUTO;
+import static javax.persistence.GenerationType.SEQUENCE;
 
 import javax.persistence.Column;
 import javax.persistence.Entity;
@@ -40,6 +40,8 @@ import lombok.NoArgsConstructor;
 import lombok.Setter;
 import lombok.ToString;
 import org.apache.commons.lang.RandomStringUtils;
+import org.hibernate.annotations.GenericGenerator;
+import org.hibernate.annotations.Parameter;
 
 @Table(name = "area")
 @Entity
@@ -50,7 +52,11 @@ import org.apache.commons.lang.RandomStringUtils;
 public class AreaEntity {
 
     @Id
-    @GeneratedValue(strategy = AUTO)
+    @GeneratedValue(strategy = SEQUENCE, generator = "area_seq")
+    @GenericGenerator(name = "area_seq", strategy = "enhanced-sequence", parameters = {
+            @Parameter(name = "sequence_name", value = "area_seq"),
+            @Parameter(name = "increment_size", value = "50"),
+            @Parameter(name = "optimizer", value = "pooled-lo")})
     private Long id;
 
     @Size(min = 36, max = 36)
@@ -12,12 +12,16 @@ package eu.europa.ec.fisheries.uvms.subscription.service.domain;
 
 import static eu.europa.ec.fisheries.uvms.commons.date.DateUtils.END_OF_TIME;
 import static eu.europa.ec.fisheries.uvms.commons.date.DateUtils.nowUTC;
+import static eu.europa.ec.fisheries.uvms.subscription.service.domain.SubscriptionEntity.BY_GUID;
 import static eu.europa.ec.fisheries.uvms.subscription.service.domain.SubscriptionEntity.BY_NAME;
-import static eu.europa.ec.fisheries.uvms.subscription.service.domain.SubscriptionEntity.LIST_SUBSCRIPTION;
+import static eu.europa.ec.fisheries.uvms.subscription.service.domain.SubscriptionEntity.LIST_ENABLED;
+import static eu.europa.ec.fisheries.uvms.subscription.service.domain.SubscriptionEntity.UPDATE_STATE;
+import static eu.europa.ec.fisheries.uvms.subscription.service.domain.SubscriptionEntity.LIST_BY_GUIDS;
+import static eu.europa.ec.fisheries.uvms.subscription.service.domain.SubscriptionEntity.LIST_BY_IDS;
 import static javax.persistence.CascadeType.ALL;
 import static javax.persistence.CascadeType.MERGE;
 import static javax.persistence.EnumType.STRING;
-import static javax.persistence.GenerationType.AUTO;
+import static javax.persistence.GenerationType.SEQUENCE;
 import static org.apache.commons.lang.RandomStringUtils.randomAlphabetic;
 
 import javax.persistence.Column;
@@ -33,6 +37,7 @@ import javax.persistence.PrePersist;
 import javax.persistence.PreUpdate;
 import javax.persistence.Table;
 import javax.persistence.Transient;
+import javax.persistence.Version;
 import javax.validation.Valid;
 import javax.validation.constraints.NotNull;
 import javax.validation.constraints.Size;
@@ -53,6 +58,8 @@ import lombok.Builder;
 import lombok.Data;
 import lombok.EqualsAndHashCode;
 import lombok.NoArgsConstructor;
+import org.hibernate.annotations.GenericGenerator;
+import org.hibernate.annotations.Parameter;
 
 @Entity
 @Data
@@ -61,37 +68,57 @@ import lombok.NoArgsConstructor;
 @NoArgsConstructor
 @Table(name = "subscription")
 @NamedQueries({
-        @NamedQuery(name = LIST_SUBSCRIPTION, query =
+        @NamedQuery(name = LIST_BY_IDS, query =
                 "SELECT DISTINCT s FROM SubscriptionEntity s " +
                 "LEFT JOIN FETCH s.conditions c " +
                 "LEFT JOIN FETCH s.areas a " +
-                " WHERE " +
-                        "((:channel is NULL) OR (((:strict = false) AND UPPER(cast(s.channel as string)) LIKE CONCAT('%', UPPER(cast(:channel as string)), '%')) OR ((:strict = true) AND s.channel = :channel))) AND " +
-                        "((:organisation is NULL) OR (((:strict = false) AND UPPER(cast(s.organisation as string)) LIKE CONCAT('%', UPPER(cast(:organisation as string)), '%')) OR ((:strict = true) AND s.organisation = :organisation))) AND " +
-                        "((:endPoint is NULL) OR (((:strict = false) AND UPPER(cast(s.endPoint as string)) LIKE CONCAT('%', UPPER(cast(:endPoint as string)), '%')) OR ((:strict = true) AND s.endPoint = :endPoint))) AND " +
-                "((:enabled is NULL) OR s.enabled = :enabled) AND " +
-                "((:name is NULL) OR (UPPER(cast(s.name as string)) LIKE CONCAT('%', UPPER(cast(:name as string)), '%'))) AND " +
-                "((:subscriptionType is NULL) OR (UPPER(cast(s.subscriptionType as string)) = UPPER(cast(:subscriptionType as string)))) AND " +
-                "((:messageType is NULL) OR (UPPER(cast(s.messageType as string)) LIKE CONCAT('%', UPPER(cast(:messageType as string)), '%'))) AND " +
-                "((:accessibility is NULL) OR (UPPER(cast(s.accessibility as string)) = UPPER(cast(:accessibility as string)))) AND " +
-                "((:description is NULL) OR (UPPER(cast(s.description as string)) LIKE CONCAT('%', UPPER(cast(:description as string)), '%'))) AND " +
-                "(cast(:startDate as timestamp) <= s.validityPeriod.startDate OR cast(:endDate as timestamp) <= s.validityPeriod.endDate) "
+                "WHERE s.id IN (:ids)"
         ),
         @NamedQuery(name = BY_NAME, query = "SELECT s FROM SubscriptionEntity s " +
                 "LEFT JOIN FETCH s.conditions c " +
                 "LEFT JOIN FETCH s.areas a " +
-                "WHERE s.name = :name")
+                "WHERE s.name = :name"),
+        @NamedQuery(name = BY_GUID, query = "SELECT DISTINCT s FROM SubscriptionEntity s " +
+                "LEFT JOIN FETCH s.conditions c " +
+                "LEFT JOIN FETCH s.areas a " +
+                "WHERE s.guid = :guid"),
+        @NamedQuery(name = LIST_BY_GUIDS, query = "SELECT DISTINCT s FROM SubscriptionEntity s " +
+                "LEFT JOIN FETCH s.conditions c " +
+                "LEFT JOIN FETCH s.areas a " +
+                "WHERE s.guid IN (:guids)"),
+        @NamedQuery(name = LIST_ENABLED, query = "SELECT DISTINCT s FROM SubscriptionEntity s " +
+                "LEFT JOIN FETCH s.conditions c " +
+                "WHERE s.enabled = true"),
+        @NamedQuery(name = UPDATE_STATE, query = "UPDATE SubscriptionEntity s " +
+                "SET s.enabled = :enabled, s.validityPeriod.startDate = :startDate, s.validityPeriod.endDate = :endDate, " +
+                "s.version = s.version + 1 " +
+                "WHERE s.id = :id AND s.version = :version")
 })
-@EqualsAndHashCode(exclude = {"id"})
+@EqualsAndHashCode(exclude = {"id", "version"})
 public class SubscriptionEntity implements Serializable {
 
-    public static final String LIST_SUBSCRIPTION = "subscription.listSubscriptions";
     public static final String BY_NAME = "subscription.byName";
+    public static final String LIST_ENABLED = "subscription.listEnabled";
+    public static final String LIST_BY_IDS = "subscription.listByIds";
+    public static final String BY_GUID = "subscription.byGuid";
+    public static final String LIST_BY_GUIDS = "subscription.listByGuids";
+    public static final String UPDATE_STATE = "subscription.updateState";
 
     @Id
-    @GeneratedValue(strategy = AUTO)
+    @GeneratedValue(strategy = SEQUENCE, generator = "subscription_seq")
+    @GenericGenerator(name = "subscription_seq", strategy = "enhanced-sequence", parameters = {
+            @Parameter(name = "sequence_name", value = "subscription_seq"),
+            @Parameter(name = "increment_size", value = "50"),
+            @Parameter(name = "optimizer", value = "pooled-lo")})
     private Long id;
 
+    /**
+     * Incremented on each update, an update made from an older version is rejected.
+     */
+    @Version
+    @Column(nullable = false)
+    private Long version;
+
     @NotNull
     @Enumerated(STRING)
     @Column(name = "subscription_type")
@@ -186,9 +213,21 @@ public class SubscriptionEntity implements Serializable {
         area.setSubscription(null);
     }
 
+    /**
+     * The guid is given once, other modules may keep it as the key of the subscription.
+     */
     @PrePersist
+    private void prePersist() {
+        applyValidityDefaults();
+        setGuid(UUID.randomUUID().toString());
+    }
+
     @PreUpdate
-    private void prepersistOrPreUpdate() {
+    private void preUpdate() {
+        applyValidityDefaults();
+    }
+
+    private void applyValidityDefaults() {
         if (validityPeriod == null){
             validityPeriod = new DateRange(new Date(), new Date(Long.MAX_VALUE));
         }
@@ -198,7 +237,6 @@ public class SubscriptionEntity implements Serializable {
         if (validityPeriod.getEndDate() == null){
             validityPeriod.setEndDate(END_OF_TIME.toDate());
         }
-        setGuid(UUID.randomUUID().toString());
     }
 
     public static SubscriptionEntity random(){
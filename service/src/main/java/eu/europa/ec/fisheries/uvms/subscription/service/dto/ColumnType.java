@@ -14,8 +14,8 @@ public enum ColumnType {
 
     NAME("name"),
     DESCRIPTION("description"),
-    START_DATE("startDate"),
-    END_DATE("endDate"),
+    START_DATE("validityPeriod.startDate"),
+    END_DATE("validityPeriod.endDate"),
     END_POINT("endPoint"),
     CHANNEL("channel"),
     ORGANISATION("organisation"),
@@ -40,6 +40,9 @@ public class QueryParameterDto {
     private String description;
     private AccessibilityType accessibility;
 
+    /** Case insensitive text contained in the name or the description. */
+    private String search;
+
    @JsonFormat(shape = STRING, pattern = DATE_TIME_UI_FORMAT)
    private Date startDate;
    @JsonFormat(shape = STRING, pattern = DATE_TIME_UI_FORMAT)
@@ -42,6 +42,11 @@ public class SubscriptionDto {
 
     private Long id;
 
+    /**
+     * Version the changes are based on, the update is refused when the subscription has changed since.
+     */
+    private Long version;
+
     @NotNull
     private String name;
 
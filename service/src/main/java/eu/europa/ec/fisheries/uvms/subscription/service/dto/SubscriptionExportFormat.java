@@ -0,0 +1,51 @@
+/*
+ Developed by the European Commission - Directorate General for Maritime Affairs and Fisheries @ European Union, 2015-2016.
+
+ This file is part of the Integrated Fisheries Data Management (IFDM) Suite. The IFDM Suite is free software: you can redistribute it
+ and/or modify it under the terms of the GNU General Public License as published by the Free Software Foundation, either version 3 of
+ the License, or any later version. The IFDM Suite is distributed in the hope that it will be useful, but WITHOUT ANY WARRANTY;
+ without even the implied warranty of MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU General Public License for more
+ details. You should have received a copy of the GNU General Public License along with the IFDM Suite. If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package eu.europa.ec.fisheries.uvms.subscription.service.dto;
+
+public enum SubscriptionExportFormat {
+
+    NDJSON("application/x-ndjson", "ndjson"),
+    CSV("text/csv", "csv");
+
+    private String mediaType;
+
+    private String extension;
+
+    SubscriptionExportFormat(String mediaType, String extension) {
+        this.mediaType = mediaType;
+        this.extension = extension;
+    }
+
+    /**
+     * @param format the requested format, case insensitive
+     * @return the format, NDJSON when none is given
+     * @throws IllegalArgumentException when the format is not supported
+     */
+    public static SubscriptionExportFormat fromParameter(String format) {
+        if (format == null || format.trim().isEmpty()) {
+            return NDJSON;
+        }
+        for (SubscriptionExportFormat value : values()) {
+            if (value.name().equalsIgnoreCase(format.trim())) {
+                return value;
+            }
+        }
+        throw new IllegalArgumentException("Unsupported export format " + format + ", expected NDJSON or CSV");
+    }
+
+    public String mediaType() {
+        return mediaType;
+    }
+
+    public String extension() {
+        return extension;
+    }
+}
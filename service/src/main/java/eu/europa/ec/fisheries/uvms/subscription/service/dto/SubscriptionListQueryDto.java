@@ -39,4 +39,15 @@ public class SubscriptionListQueryDto {
 
     @Valid
     private OrderByDto orderBy = new OrderByDto();
+
+    /**
+     * Switches the list to keyset pagination when set: empty for the first page, then the next cursor of the
+     * previous response. Only the page size of the pagination is used in that mode.
+     */
+    private String cursor;
+
+    /**
+     * Lists the subscriptions as {@link SubscriptionSummaryDto}, without their conditions and areas.
+     */
+    private boolean summary;
 }
@@ -16,7 +16,6 @@ import java.util.List;
 
 import com.fasterxml.jackson.annotation.JsonInclude;
 import com.fasterxml.jackson.annotation.JsonProperty;
-import eu.europa.ec.fisheries.uvms.subscription.service.domain.SubscriptionEntity;
 import lombok.Data;
 
 @Data
@@ -26,7 +25,11 @@ public class SubscriptionListResponseDto {
     private Integer currentPage = null;
     private Integer totalNumberOfPages = null;
 
+    /** Cursor of the next page in keyset pagination, absent on the last page. */
+    private String nextCursor = null;
+
+    /** Subscriptions with their conditions and areas, or their {@link SubscriptionSummaryDto} in summary mode. */
     @JsonProperty("subscriptionList")
-    private List<SubscriptionEntity> list;
+    private List<?> list;
 
 }
@@ -0,0 +1,48 @@
+/*
+ Developed by the European Commission - Directorate General for Maritime Affairs and Fisheries @ European Union, 2015-2016.
+
+ This file is part of the Integrated Fisheries Data Management (IFDM) Suite. The IFDM Suite is free software: you can redistribute it
+ and/or modify it under the terms of the GNU General Public License as published by the Free Software Foundation, either version 3 of
+ the License, or any later version. The IFDM Suite is distributed in the hope that it will be useful, but WITHOUT ANY WARRANTY;
+ without even the implied warranty of MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU General Public License for more
+ details. You should have received a copy of the GNU General Public License along with the IFDM Suite. If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package eu.europa.ec.fisheries.uvms.subscription.service.dto;
+
+import static com.fasterxml.jackson.annotation.JsonFormat.Shape.STRING;
+import static eu.europa.ec.fisheries.uvms.commons.date.DateUtils.DATE_TIME_UI_FORMAT;
+
+import javax.validation.constraints.NotNull;
+import java.util.Date;
+
+import com.fasterxml.jackson.annotation.JsonFormat;
+import com.fasterxml.jackson.annotation.JsonProperty;
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+/**
+ * Enabled bit and validity period of a subscription, changed without touching its other fields.
+ */
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class SubscriptionStateDto {
+
+    /**
+     * Version the change is based on; in a response, the version after the change.
+     */
+    @NotNull
+    private Long version;
+
+    @NotNull
+    @JsonProperty("isActive")
+    private Boolean active;
+
+    @JsonFormat(shape = STRING, pattern = DATE_TIME_UI_FORMAT)
+    private Date startDate;
+
+    @JsonFormat(shape = STRING, pattern = DATE_TIME_UI_FORMAT)
+    private Date endDate;
+}
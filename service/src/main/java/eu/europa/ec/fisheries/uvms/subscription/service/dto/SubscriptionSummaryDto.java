@@ -0,0 +1,94 @@
+/*
+ Developed by the European Commission - Directorate General for Maritime Affairs and Fisheries @ European Union, 2015-2016.
+
+ This file is part of the Integrated Fisheries Data Management (IFDM) Suite. The IFDM Suite is free software: you can redistribute it
+ and/or modify it under the terms of the GNU General Public License as published by the Free Software Foundation, either version 3 of
+ the License, or any later version. The IFDM Suite is distributed in the hope that it will be useful, but WITHOUT ANY WARRANTY;
+ without even the implied warranty of MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU General Public License for more
+ details. You should have received a copy of the GNU General Public License along with the IFDM Suite. If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package eu.europa.ec.fisheries.uvms.subscription.service.dto;
+
+import static com.fasterxml.jackson.annotation.JsonFormat.Shape.STRING;
+import static eu.europa.ec.fisheries.uvms.commons.date.DateUtils.DATE_TIME_UI_FORMAT;
+
+import java.util.Date;
+
+import com.fasterxml.jackson.annotation.JsonFormat;
+import com.fasterxml.jackson.annotation.JsonProperty;
+import eu.europa.ec.fisheries.uvms.subscription.service.domain.StateType;
+import eu.europa.ec.fisheries.uvms.subscription.service.domain.SubscriptionType;
+import eu.europa.ec.fisheries.uvms.subscription.service.domain.TriggerType;
+import eu.europa.ec.fisheries.wsdl.subscription.module.MessageType;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+/**
+ * Row of a subscription list page, selected as a projection of the subscription columns: the conditions and areas
+ * are only read for the details of one subscription.
+ */
+@Data
+@NoArgsConstructor
+public class SubscriptionSummaryDto {
+
+    private Long id;
+
+    private String name;
+
+    private String guid;
+
+    private String description;
+
+    private Long organisation;
+
+    private String organisationName;
+
+    private Long endPoint;
+
+    private String endpointName;
+
+    @JsonProperty("communicationChannel")
+    private Long channel;
+
+    private String channelName;
+
+    private MessageType messageType;
+
+    private SubscriptionType subscriptionType;
+
+    @JsonProperty("isActive")
+    private boolean enabled;
+
+    @JsonFormat(shape = STRING, pattern = DATE_TIME_UI_FORMAT)
+    private Date startDate;
+
+    @JsonFormat(shape = STRING, pattern = DATE_TIME_UI_FORMAT)
+    private Date endDate;
+
+    private TriggerType triggerType;
+
+    private StateType stateType;
+
+    /**
+     * Constructor of the JPQL projection, see {@link eu.europa.ec.fisheries.uvms.subscription.service.dao.SubscriptionDao}.
+     */
+    public SubscriptionSummaryDto(Long id, String name, String guid, String description, Long organisation, Long endPoint, Long channel,
+                                  MessageType messageType, SubscriptionType subscriptionType, Boolean enabled, Date startDate, Date endDate,
+                                  TriggerType triggerType, StateType stateType) {
+        this.id = id;
+        this.name = name;
+        this.guid = guid;
+        this.description = description;
+        this.organisation = organisation;
+        this.endPoint = endPoint;
+        this.channel = channel;
+        this.messageType = messageType;
+        this.subscriptionType = subscriptionType;
+        this.enabled = Boolean.TRUE.equals(enabled);
+        this.startDate = startDate;
+        this.endDate = endDate;
+        this.triggerType = triggerType;
+        this.stateType = stateType;
+    }
+}
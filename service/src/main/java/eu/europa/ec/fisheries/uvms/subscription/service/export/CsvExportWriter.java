@@ -0,0 +1,80 @@
+/*
+ Developed by the European Commission - Directorate General for Maritime Affairs and Fisheries @ European Union, 2015-2016.
+
+ This file is part of the Integrated Fisheries Data Management (IFDM) Suite. The IFDM Suite is free software: you can redistribute it
+ and/or modify it under the terms of the GNU General Public License as published by the Free Software Foundation, either version 3 of
+ the License, or any later version. The IFDM Suite is distributed in the hope that it will be useful, but WITHOUT ANY WARRANTY;
+ without even the implied warranty of MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU General Public License for more
+ details. You should have received a copy of the GNU General Public License along with the IFDM Suite. If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package eu.europa.ec.fisheries.uvms.subscription.service.export;
+
+import static eu.europa.ec.fisheries.uvms.commons.date.DateUtils.DATE_TIME_UI_FORMAT;
+
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.text.DateFormat;
+import java.text.SimpleDateFormat;
+import java.util.Date;
+import java.util.TimeZone;
+
+import eu.europa.ec.fisheries.uvms.subscription.service.dto.SubscriptionSummaryDto;
+
+/**
+ * Comma separated values with a header line, quoted as in RFC 4180.
+ */
+class CsvExportWriter extends SubscriptionExportWriter {
+
+    private static final String[] HEADER = {"id", "name", "guid", "description", "organisation", "organisationName",
+            "endPoint", "endpointName", "communicationChannel", "channelName", "messageType", "subscriptionType",
+            "isActive", "startDate", "endDate", "triggerType", "stateType"};
+
+    private final Writer writer;
+
+    private final DateFormat dateFormat = new SimpleDateFormat(DATE_TIME_UI_FORMAT);
+
+    CsvExportWriter(OutputStream output) throws IOException {
+        writer = new BufferedWriter(new OutputStreamWriter(output, StandardCharsets.UTF_8));
+        dateFormat.setTimeZone(TimeZone.getTimeZone("UTC"));
+        writeRow((Object[]) HEADER);
+    }
+
+    @Override
+    public void write(SubscriptionSummaryDto summary) throws IOException {
+        writeRow(summary.getId(), summary.getName(), summary.getGuid(), summary.getDescription(),
+                summary.getOrganisation(), summary.getOrganisationName(), summary.getEndPoint(), summary.getEndpointName(),
+                summary.getChannel(), summary.getChannelName(), summary.getMessageType(), summary.getSubscriptionType(),
+                summary.isEnabled(), summary.getStartDate(), summary.getEndDate(), summary.getTriggerType(), summary.getStateType());
+    }
+
+    @Override
+    public void close() throws IOException {
+        writer.flush();
+    }
+
+    private void writeRow(Object... values) throws IOException {
+        for (int i = 0; i < values.length; i++) {
+            if (i > 0) {
+                writer.write(',');
+            }
+            writer.write(format(values[i]));
+        }
+        writer.write("\r\n");
+    }
+
+    private String format(Object value) {
+        if (value == null) {
+            return "";
+        }
+        String text = value instanceof Date ? dateFormat.format((Date) value) : value.toString();
+        if (text.indexOf(',') < 0 && text.indexOf('"') < 0 && text.indexOf('\n') < 0 && text.indexOf('\r') < 0) {
+            return text;
+        }
+        return '"' + text.replace("\"", "\"\"") + '"';
+    }
+}
@@ -0,0 +1,38 @@
+/*
+ Developed by the European Commission - Directorate General for Maritime Affairs and Fisheries @ European Union, 2015-2016.
+
+ This file is part of the Integrated Fisheries Data Management (IFDM) Suite. The IFDM Suite is free software: you can redistribute it
+ and/or modify it under the terms of the GNU General Public License as published by the Free Software Foundation, either version 3 of
+ the License, or any later version. The IFDM Suite is distributed in the hope that it will be useful, but WITHOUT ANY WARRANTY;
+ without even the implied warranty of MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU General Public License for more
+ details. You should have received a copy of the GNU General Public License along with the IFDM Suite. If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package eu.europa.ec.fisheries.uvms.subscription.service.export;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.OutputStream;
+
+import eu.europa.ec.fisheries.uvms.subscription.service.dto.SubscriptionExportFormat;
+import eu.europa.ec.fisheries.uvms.subscription.service.dto.SubscriptionSummaryDto;
+
+/**
+ * Writes the rows of a subscription export to the response as they are read. Closing the writer flushes what is
+ * buffered but leaves the output stream open, it belongs to the container.
+ */
+public abstract class SubscriptionExportWriter implements Closeable {
+
+    public static SubscriptionExportWriter of(SubscriptionExportFormat format, OutputStream output) throws IOException {
+        switch (format) {
+            case CSV:
+                return new CsvExportWriter(output);
+            case NDJSON:
+                return new NdjsonExportWriter(output);
+            default:
+                throw new IllegalArgumentException("Unsupported export format " + format);
+        }
+    }
+
+    public abstract void write(SubscriptionSummaryDto summary) throws IOException;
+}
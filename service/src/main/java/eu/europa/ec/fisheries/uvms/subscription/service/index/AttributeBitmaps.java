@@ -0,0 +1,63 @@
+/*
+ Developed by the European Commission - Directorate General for Maritime Affairs and Fisheries @ European Union, 2015-2016.
+
+ This file is part of the Integrated Fisheries Data Management (IFDM) Suite. The IFDM Suite is free software: you can redistribute it
+ and/or modify it under the terms of the GNU General Public License as published by the Free Software Foundation, either version 3 of
+ the License, or any later version. The IFDM Suite is distributed in the hope that it will be useful, but WITHOUT ANY WARRANTY;
+ without even the implied warranty of MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU General Public License for more
+ details. You should have received a copy of the GNU General Public License along with the IFDM Suite. If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package eu.europa.ec.fisheries.uvms.subscription.service.index;
+
+import java.util.BitSet;
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * Bitmap of subscription ordinals per value of one indexed attribute. Null is indexed like any other value.
+ * Not thread safe, access is guarded by {@link SubscriptionIndex}.
+ */
+class AttributeBitmaps<V> {
+
+    private final Map<V, BitSet> bitmaps = new HashMap<>();
+
+    void add(V value, int ordinal) {
+        BitSet bitmap = bitmaps.get(value);
+        if (bitmap == null) {
+            bitmap = new BitSet();
+            bitmaps.put(value, bitmap);
+        }
+        bitmap.set(ordinal);
+    }
+
+    void remove(V value, int ordinal) {
+        BitSet bitmap = bitmaps.get(value);
+        if (bitmap == null) {
+            return;
+        }
+        bitmap.clear(ordinal);
+        if (bitmap.isEmpty()) {
+            bitmaps.remove(value);
+        }
+    }
+
+    /**
+     * Intersect the candidates with the ordinals having the given value. A null value is a wildcard and leaves the candidates untouched.
+     */
+    void retain(BitSet candidates, V value) {
+        if (value == null) {
+            return;
+        }
+        BitSet bitmap = bitmaps.get(value);
+        if (bitmap == null) {
+            candidates.clear();
+        } else {
+            candidates.and(bitmap);
+        }
+    }
+
+    void clear() {
+        bitmaps.clear();
+    }
+}
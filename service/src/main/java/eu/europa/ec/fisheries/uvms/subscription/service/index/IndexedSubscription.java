@@ -0,0 +1,80 @@
+/*
+ Developed by the European Commission - Directorate General for Maritime Affairs and Fisheries @ European Union, 2015-2016.
+
+ This file is part of the Integrated Fisheries Data Management (IFDM) Suite. The IFDM Suite is free software: you can redistribute it
+ and/or modify it under the terms of the GNU General Public License as published by the Free Software Foundation, either version 3 of
+ the License, or any later version. The IFDM Suite is distributed in the hope that it will be useful, but WITHOUT ANY WARRANTY;
+ without even the implied warranty of MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU General Public License for more
+ details. You should have received a copy of the GNU General Public License along with the IFDM Suite. If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package eu.europa.ec.fisheries.uvms.subscription.service.index;
+
+import java.util.Date;
+
+import eu.europa.ec.fisheries.uvms.commons.domain.DateRange;
+import eu.europa.ec.fisheries.uvms.subscription.service.condition.ConditionNode;
+import eu.europa.ec.fisheries.uvms.subscription.service.condition.PredicateResults;
+import eu.europa.ec.fisheries.uvms.subscription.service.domain.AccessibilityType;
+import eu.europa.ec.fisheries.uvms.subscription.service.domain.SubscriptionEntity;
+import eu.europa.ec.fisheries.uvms.subscription.service.domain.SubscriptionType;
+import eu.europa.ec.fisheries.wsdl.subscription.module.MessageType;
+import lombok.Value;
+
+/**
+ * Immutable snapshot of the fields of a {@link SubscriptionEntity} needed to answer permission checks.
+ * Snapshots are detached from the persistence context and can safely be shared between threads.
+ */
+@Value
+public class IndexedSubscription {
+
+    private final Long id;
+    private final Long organisation;
+    private final MessageType messageType;
+    private final Long endPoint;
+    private final Long channel;
+    private final AccessibilityType accessibility;
+    private final SubscriptionType subscriptionType;
+    private final boolean enabled;
+    private final long startDate;
+    private final long endDate;
+    private final ConditionNode startCondition;
+
+    public static IndexedSubscription of(SubscriptionEntity entity, ConditionNode startCondition) {
+        DateRange validityPeriod = entity.getValidityPeriod();
+        return new IndexedSubscription(entity.getId(), entity.getOrganisation(), entity.getMessageType(),
+                entity.getEndPoint(), entity.getChannel(), entity.getAccessibility(), entity.getSubscriptionType(), entity.isEnabled(),
+                validityPeriod != null ? startOf(validityPeriod.getStartDate()) : Long.MIN_VALUE,
+                validityPeriod != null ? endOf(validityPeriod.getEndDate()) : Long.MAX_VALUE, startCondition);
+    }
+
+    /**
+     * @return a copy of this snapshot with another enabled bit and validity period, keeping the compiled conditions
+     */
+    public IndexedSubscription withState(boolean enabled, Date startDate, Date endDate) {
+        return new IndexedSubscription(id, organisation, messageType, endPoint, channel, accessibility, subscriptionType, enabled,
+                startOf(startDate), endOf(endDate), startCondition);
+    }
+
+    /**
+     * @return true if the validity period of this subscription overlaps with [from, to]
+     */
+    public boolean isValidWithin(long from, long to) {
+        return startDate <= to && endDate >= from;
+    }
+
+    private static long startOf(Date startDate) {
+        return startDate != null ? startDate.getTime() : Long.MIN_VALUE;
+    }
+
+    private static long endOf(Date endDate) {
+        return endDate != null ? endDate.getTime() : Long.MAX_VALUE;
+    }
+
+    /**
+     * @return true if the criteria of the incoming message satisfy the start conditions of this subscription
+     */
+    public boolean isTriggeredBy(PredicateResults results) {
+        return startCondition.evaluate(results);
+    }
+}
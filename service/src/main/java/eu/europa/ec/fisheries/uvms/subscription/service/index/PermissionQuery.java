@@ -0,0 +1,61 @@
+/*
+ Developed by the European Commission - Directorate General for Maritime Affairs and Fisheries @ European Union, 2015-2016.
+
+ This file is part of the Integrated Fisheries Data Management (IFDM) Suite. The IFDM Suite is free software: you can redistribute it
+ and/or modify it under the terms of the GNU General Public License as published by the Free Software Foundation, either version 3 of
+ the License, or any later version. The IFDM Suite is distributed in the hope that it will be useful, but WITHOUT ANY WARRANTY;
+ without even the implied warranty of MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU General Public License for more
+ details. You should have received a copy of the GNU General Public License along with the IFDM Suite. If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package eu.europa.ec.fisheries.uvms.subscription.service.index;
+
+import java.util.Collections;
+import java.util.List;
+
+import eu.europa.ec.fisheries.uvms.subscription.service.domain.AccessibilityType;
+import eu.europa.ec.fisheries.uvms.subscription.service.domain.SubscriptionType;
+import eu.europa.ec.fisheries.wsdl.subscription.module.MessageType;
+import eu.europa.ec.fisheries.wsdl.subscription.module.SubscriptionDataCriteria;
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Value;
+
+/**
+ * Normalised form of a {@link eu.europa.ec.fisheries.wsdl.subscription.module.SubscriptionDataQuery}.
+ * A null field acts as a wildcard. When both dates are null the subscription must be valid at the time of the check.
+ * The raw criteria are kept to evaluate the conditions of the candidate subscriptions.
+ */
+@Value
+@Builder
+@AllArgsConstructor
+public class PermissionQuery {
+
+    private final MessageType messageType;
+    private final Long organisation;
+    private final Long endPoint;
+    private final Long channel;
+    private final AccessibilityType accessibility;
+    private final SubscriptionType subscriptionType;
+    private final Long startDate;
+    private final Long endDate;
+    private final List<SubscriptionDataCriteria> criteria;
+
+    public List<SubscriptionDataCriteria> getCriteria() {
+        return criteria == null ? Collections.<SubscriptionDataCriteria>emptyList() : criteria;
+    }
+
+    public long validFrom(long now) {
+        if (startDate != null) {
+            return startDate;
+        }
+        return endDate != null ? Long.MIN_VALUE : now;
+    }
+
+    public long validTo(long now) {
+        if (endDate != null) {
+            return endDate;
+        }
+        return startDate != null ? Long.MAX_VALUE : now;
+    }
+}
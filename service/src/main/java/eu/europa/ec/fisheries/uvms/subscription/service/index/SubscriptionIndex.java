@@ -0,0 +1,306 @@
+/*
+ Developed by the European Commission - Directorate General for Maritime Affairs and Fisheries @ European Union, 2015-2016.
+
+ This file is part of the Integrated Fisheries Data Management (IFDM) Suite. The IFDM Suite is free software: you can redistribute it
+ and/or modify it under the terms of the GNU General Public License as published by the Free Software Foundation, either version 3 of
+ the License, or any later version. The IFDM Suite is distributed in the hope that it will be useful, but WITHOUT ANY WARRANTY;
+ without even the implied warranty of MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU General Public License for more
+ details. You should have received a copy of the GNU General Public License along with the IFDM Suite. If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package eu.europa.ec.fisheries.uvms.subscription.service.index;
+
+import java.util.ArrayList;
+import java.util.BitSet;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.locks.ReadWriteLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+
+import eu.europa.ec.fisheries.uvms.subscription.service.condition.PredicateNetwork;
+import eu.europa.ec.fisheries.uvms.subscription.service.condition.PredicateResults;
+import eu.europa.ec.fisheries.uvms.subscription.service.domain.AccessibilityType;
+import eu.europa.ec.fisheries.uvms.subscription.service.domain.SubscriptionType;
+import eu.europa.ec.fisheries.wsdl.subscription.module.MessageType;
+
+/**
+ * In-memory index of the subscriptions used to answer permission checks.
+ * Every subscription gets a dense ordinal, recycled on removal, and every value of organisation, messageType, endPoint, channel,
+ * accessibility, subscriptionType and enabled maps to a bitmap of ordinals. A lookup intersects the bitmaps of the attributes
+ * set on the query. When many candidates remain, they are further restricted to the ordinals returned by the
+ * {@link ValidityIntervals} tree for the requested period; the compiled start conditions are checked last.
+ * The interval tree is rebuilt on every modification, which are rare compared to lookups; the batch modifications
+ * rebuild it once for all their subscriptions.
+ * Thread safe: lookups share a read lock, modifications take the write lock.
+ * The start conditions of all candidates of a lookup are evaluated against a single {@link PredicateResults},
+ * so a predicate shared by several subscriptions is evaluated once per lookup.
+ */
+public class SubscriptionIndex {
+
+    /**
+     * Below this number of candidates, checking the validity period of each of them is cheaper than querying the interval tree.
+     */
+    private static final int DIRECT_VALIDITY_CHECK_THRESHOLD = 64;
+
+    private final ReadWriteLock lock = new ReentrantReadWriteLock();
+
+    private final Map<Long, Integer> ordinalById = new HashMap<>();
+
+    private final List<IndexedSubscription> byOrdinal = new ArrayList<>();
+
+    private final BitSet freeOrdinals = new BitSet();
+
+    private final BitSet enabled = new BitSet();
+
+    private final AttributeBitmaps<Long> organisations = new AttributeBitmaps<>();
+
+    private final AttributeBitmaps<MessageType> messageTypes = new AttributeBitmaps<>();
+
+    private final AttributeBitmaps<Long> endPoints = new AttributeBitmaps<>();
+
+    private final AttributeBitmaps<Long> channels = new AttributeBitmaps<>();
+
+    private final AttributeBitmaps<AccessibilityType> accessibilities = new AttributeBitmaps<>();
+
+    private final AttributeBitmaps<SubscriptionType> subscriptionTypes = new AttributeBitmaps<>();
+
+    private ValidityIntervals validityIntervals = ValidityIntervals.EMPTY;
+
+    private PredicateNetwork network;
+
+    public SubscriptionIndex(PredicateNetwork network) {
+        this.network = network;
+    }
+
+    public void rebuild(Collection<IndexedSubscription> subscriptions) {
+        rebuild(subscriptions, network);
+    }
+
+    /**
+     * Replace the content of the index by subscriptions compiled against the given network, which from now on
+     * evaluates the predicates of the queries.
+     */
+    public void rebuild(Collection<IndexedSubscription> subscriptions, PredicateNetwork network) {
+        lock.writeLock().lock();
+        try {
+            this.network = network;
+            ordinalById.clear();
+            byOrdinal.clear();
+            freeOrdinals.clear();
+            enabled.clear();
+            organisations.clear();
+            messageTypes.clear();
+            endPoints.clear();
+            channels.clear();
+            accessibilities.clear();
+            subscriptionTypes.clear();
+            for (IndexedSubscription subscription : subscriptions) {
+                add(subscription);
+            }
+            validityIntervals = ValidityIntervals.of(byOrdinal);
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    /**
+     * Add or replace a subscription. Disabled subscriptions are kept with their enabled bit cleared and never match.
+     * @return the replaced subscription, null if there was none
+     */
+    public IndexedSubscription put(IndexedSubscription subscription) {
+        lock.writeLock().lock();
+        try {
+            IndexedSubscription previous = delete(subscription.getId());
+            add(subscription);
+            validityIntervals = ValidityIntervals.of(byOrdinal);
+            return previous;
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    /**
+     * Add or replace several subscriptions under a single acquisition of the write lock.
+     * @return the replaced subscriptions, those that were not indexed being left out
+     */
+    public List<IndexedSubscription> putAll(Collection<IndexedSubscription> subscriptions) {
+        List<IndexedSubscription> replaced = new ArrayList<>();
+        lock.writeLock().lock();
+        try {
+            for (IndexedSubscription subscription : subscriptions) {
+                IndexedSubscription previous = delete(subscription.getId());
+                if (previous != null) {
+                    replaced.add(previous);
+                }
+                add(subscription);
+            }
+            validityIntervals = ValidityIntervals.of(byOrdinal);
+            return replaced;
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    /**
+     * @return the indexed subscription of the given id, null if there is none
+     */
+    public IndexedSubscription get(Long id) {
+        lock.readLock().lock();
+        try {
+            Integer ordinal = ordinalById.get(id);
+            return ordinal == null ? null : byOrdinal.get(ordinal);
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    /**
+     * @return the removed subscription, null if there was none
+     */
+    public IndexedSubscription remove(Long id) {
+        lock.writeLock().lock();
+        try {
+            IndexedSubscription removed = delete(id);
+            validityIntervals = ValidityIntervals.of(byOrdinal);
+            return removed;
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    /**
+     * Remove several subscriptions under a single acquisition of the write lock.
+     * @return the removed subscriptions, those that were not indexed being left out
+     */
+    public List<IndexedSubscription> removeAll(Collection<Long> ids) {
+        List<IndexedSubscription> removed = new ArrayList<>();
+        lock.writeLock().lock();
+        try {
+            for (Long id : ids) {
+                IndexedSubscription existing = delete(id);
+                if (existing != null) {
+                    removed.add(existing);
+                }
+            }
+            validityIntervals = ValidityIntervals.of(byOrdinal);
+            return removed;
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    public boolean hasMatch(PermissionQuery query, long now) {
+        lock.readLock().lock();
+        try {
+            return !collect(query, now, true).isEmpty();
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    /**
+     * Answer several queries under a single acquisition of the read lock, all against the same state of the index.
+     * @return for each query, in order, true if it has a match
+     */
+    public boolean[] hasMatches(List<PermissionQuery> queries, long now) {
+        boolean[] answers = new boolean[queries.size()];
+        lock.readLock().lock();
+        try {
+            for (int i = 0; i < answers.length; i++) {
+                answers[i] = !collect(queries.get(i), now, true).isEmpty();
+            }
+            return answers;
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    public List<IndexedSubscription> findMatches(PermissionQuery query, long now) {
+        lock.readLock().lock();
+        try {
+            return collect(query, now, false);
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    public int size() {
+        lock.readLock().lock();
+        try {
+            return ordinalById.size();
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    private List<IndexedSubscription> collect(PermissionQuery query, long now, boolean firstOnly) {
+        List<IndexedSubscription> matches = new ArrayList<>();
+        BitSet candidates = (BitSet) enabled.clone();
+        messageTypes.retain(candidates, query.getMessageType());
+        organisations.retain(candidates, query.getOrganisation());
+        endPoints.retain(candidates, query.getEndPoint());
+        channels.retain(candidates, query.getChannel());
+        accessibilities.retain(candidates, query.getAccessibility());
+        subscriptionTypes.retain(candidates, query.getSubscriptionType());
+        if (candidates.isEmpty()) {
+            return matches;
+        }
+        long from = query.validFrom(now);
+        long to = query.validTo(now);
+        boolean checkValidity = candidates.cardinality() <= DIRECT_VALIDITY_CHECK_THRESHOLD;
+        if (!checkValidity) {
+            BitSet valid = new BitSet(byOrdinal.size());
+            validityIntervals.overlapping(from, to, valid);
+            candidates.and(valid);
+        }
+        PredicateResults results = network.evaluate(query.getCriteria());
+        for (int ordinal = candidates.nextSetBit(0); ordinal >= 0; ordinal = candidates.nextSetBit(ordinal + 1)) {
+            IndexedSubscription subscription = byOrdinal.get(ordinal);
+            if ((!checkValidity || subscription.isValidWithin(from, to)) && subscription.isTriggeredBy(results)) {
+                matches.add(subscription);
+                if (firstOnly) {
+                    break;
+                }
+            }
+        }
+        return matches;
+    }
+
+    private void add(IndexedSubscription subscription) {
+        int ordinal = freeOrdinals.nextSetBit(0);
+        if (ordinal < 0) {
+            ordinal = byOrdinal.size();
+            byOrdinal.add(subscription);
+        } else {
+            freeOrdinals.clear(ordinal);
+            byOrdinal.set(ordinal, subscription);
+        }
+        ordinalById.put(subscription.getId(), ordinal);
+        enabled.set(ordinal, subscription.isEnabled());
+        organisations.add(subscription.getOrganisation(), ordinal);
+        messageTypes.add(subscription.getMessageType(), ordinal);
+        endPoints.add(subscription.getEndPoint(), ordinal);
+        channels.add(subscription.getChannel(), ordinal);
+        accessibilities.add(subscription.getAccessibility(), ordinal);
+        subscriptionTypes.add(subscription.getSubscriptionType(), ordinal);
+    }
+
+    private IndexedSubscription delete(Long id) {
+        Integer ordinal = ordinalById.remove(id);
+        if (ordinal == null) {
+            return null;
+        }
+        IndexedSubscription existing = byOrdinal.set(ordinal, null);
+        enabled.clear(ordinal);
+        organisations.remove(existing.getOrganisation(), ordinal);
+        messageTypes.remove(existing.getMessageType(), ordinal);
+        endPoints.remove(existing.getEndPoint(), ordinal);
+        channels.remove(existing.getChannel(), ordinal);
+        accessibilities.remove(existing.getAccessibility(), ordinal);
+        subscriptionTypes.remove(existing.getSubscriptionType(), ordinal);
+        freeOrdinals.set(ordinal);
+        return existing;
+    }
+}
@@ -0,0 +1,113 @@
+/*
+ Developed by the European Commission - Directorate General for Maritime Affairs and Fisheries @ European Union, 2015-2016.
+
+ This file is part of the Integrated Fisheries Data Management (IFDM) Suite. The IFDM Suite is free software: you can redistribute it
+ and/or modify it under the terms of the GNU General Public License as published by the Free Software Foundation, either version 3 of
+ the License, or any later version. The IFDM Suite is distributed in the hope that it will be useful, but WITHOUT ANY WARRANTY;
+ without even the implied warranty of MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU General Public License for more
+ details. You should have received a copy of the GNU General Public License along with the IFDM Suite. If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package eu.europa.ec.fisheries.uvms.subscription.service.index;
+
+import java.util.Arrays;
+import java.util.BitSet;
+import java.util.Comparator;
+import java.util.List;
+
+/**
+ * Immutable interval tree over the validity periods of the indexed subscriptions.
+ * Intervals are sorted by start date and the sorted array is read as an implicit balanced tree, the middle of every
+ * range being its root; each node keeps the greatest end date of its subtree. Finding the k intervals overlapping
+ * [from, to] takes O(log n + k), an instant being the interval [t, t].
+ */
+final class ValidityIntervals {
+
+    static final ValidityIntervals EMPTY = new ValidityIntervals(new int[0], new long[0], new long[0]);
+
+    private final int[] ordinals;
+    private final long[] starts;
+    private final long[] ends;
+    private final long[] maxEnds;
+
+    private ValidityIntervals(int[] ordinals, long[] starts, long[] ends) {
+        this.ordinals = ordinals;
+        this.starts = starts;
+        this.ends = ends;
+        this.maxEnds = new long[ordinals.length];
+        computeMaxEnd(0, ordinals.length);
+    }
+
+    /**
+     * @param byOrdinal the subscriptions by ordinal, null entries are free ordinals
+     */
+    static ValidityIntervals of(final List<IndexedSubscription> byOrdinal) {
+        Integer[] sorted = new Integer[byOrdinal.size()];
+        int size = 0;
+        for (int ordinal = 0; ordinal < byOrdinal.size(); ordinal++) {
+            if (byOrdinal.get(ordinal) != null) {
+                sorted[size++] = ordinal;
+            }
+        }
+        if (size == 0) {
+            return EMPTY;
+        }
+        Arrays.sort(sorted, 0, size, new Comparator<Integer>() {
+            @Override
+            public int compare(Integer left, Integer right) {
+                return Long.compare(byOrdinal.get(left).getStartDate(), byOrdinal.get(right).getStartDate());
+            }
+        });
+        int[] ordinals = new int[size];
+        long[] starts = new long[size];
+        long[] ends = new long[size];
+        for (int i = 0; i < size; i++) {
+            IndexedSubscription subscription = byOrdinal.get(sorted[i]);
+            ordinals[i] = sorted[i];
+            starts[i] = subscription.getStartDate();
+            ends[i] = subscription.getEndDate();
+        }
+        return new ValidityIntervals(ordinals, starts, ends);
+    }
+
+    /**
+     * Set in the given bitmap the ordinals whose validity period overlaps [from, to], bounds included.
+     */
+    void overlapping(long from, long to, BitSet into) {
+        overlapping(0, ordinals.length, from, to, into);
+    }
+
+    int size() {
+        return ordinals.length;
+    }
+
+    private long computeMaxEnd(int low, int high) {
+        if (low >= high) {
+            return Long.MIN_VALUE;
+        }
+        int mid = (low + high) >>> 1;
+        long max = Math.max(ends[mid], Math.max(computeMaxEnd(low, mid), computeMaxEnd(mid + 1, high)));
+        maxEnds[mid] = max;
+        return max;
+    }
+
+    private void overlapping(int low, int high, long from, long to, BitSet into) {
+        if (low >= high) {
+            return;
+        }
+        int mid = (low + high) >>> 1;
+        if (maxEnds[mid] < from) {
+            // nothing in this subtree ends after the beginning of the range
+            return;
+        }
+        overlapping(low, mid, from, to, into);
+        if (starts[mid] > to) {
+            // everything on the right starts after the end of the range
+            return;
+        }
+        if (ends[mid] >= from) {
+            into.set(ordinals[mid]);
+        }
+        overlapping(mid + 1, high, from, to, into);
+    }
+}
@@ -12,13 +12,13 @@ package eu.europa.ec.fisheries.uvms.subscription.service.mapper;
 
 import eu.europa.ec.fisheries.uvms.commons.date.DateUtils;
 import eu.europa.ec.fisheries.uvms.subscription.service.domain.SubscriptionEntity;
+import eu.europa.ec.fisheries.uvms.subscription.service.dto.SubscriptionSummaryDto;
+import eu.europa.ec.fisheries.uvms.subscription.service.index.PermissionQuery;
 import eu.europa.ec.fisheries.wsdl.subscription.module.*;
-import eu.europa.ec.fisheries.wsdl.user.types.Channel;
-import eu.europa.ec.fisheries.wsdl.user.types.EndPoint;
 import eu.europa.ec.fisheries.wsdl.user.types.Organisation;
-import org.apache.commons.lang.StringUtils;
 
 import java.util.ArrayList;
+import java.util.Date;
 import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
@@ -85,66 +85,120 @@ public class CustomMapper {
 
     }
 
-    public static List<SubscriptionEntity> enrichSubscriptionList(List<SubscriptionEntity> resultList, List<Organisation> organisationList) {
+    /**
+     * A SENDER value that is not a number is not an organisation, end point or channel id, it is only matched against
+     * the start conditions of the subscriptions.
+     * @throws IllegalArgumentException if a VALIDITY_PERIOD date has no value type or cannot be parsed
+     */
+    public static PermissionQuery mapCriteriaToPermissionQuery(SubscriptionDataQuery query) {
 
-        boolean isOrgAvailable;
-        boolean isChannelAvailable;
-        boolean isEndPointAvailable;
+        PermissionQuery.PermissionQueryBuilder builder = PermissionQuery.builder().messageType(query.getMessageType()).criteria(query.getCriteria());
 
-        if (organisationList == null || organisationList.isEmpty()) {
-            return resultList;
-        }
-        for (SubscriptionEntity subscription : resultList){
-            isOrgAvailable = false;
-             for (Organisation orgDomain: organisationList){
-                if (subscription.getOrganisation() == orgDomain.getId()) {
-                    isOrgAvailable = true;
-                    isEndPointAvailable = false;
-                    if (orgDomain.getParentOrganisation() != null
-                            && !StringUtils.isEmpty( orgDomain.getParentOrganisation() )) {
-
-                        StringBuilder sb = new StringBuilder();
-                        sb.append( orgDomain.getParentOrganisation() );
-                        sb.append( " / " ).append( orgDomain.getName() );
-                        subscription.setOrganisationName( sb.toString() );
-                    }else
-                        subscription.setOrganisationName( orgDomain.getName());
-
-                    for (EndPoint endPoint : orgDomain.getEndPoints()) {
-                        if (subscription.getEndPoint() == endPoint.getId()) {
-                            isEndPointAvailable = true;
-                            isChannelAvailable = false;
-                            subscription.setEndpointName( endPoint.getName() );
-                            for (Channel channel : endPoint.getChannels()) {
-                                if (subscription.getChannel() == channel.getId()) {
-                                    isChannelAvailable = true;
-                                    subscription.setChannelName( channel.getDataFlow() );
-                                }
-                                if(isChannelAvailable)
-                                    break;
-                            }
-                            if(!isChannelAvailable){
-                                subscription.setChannelName( "UNKNOWN" );
-                            }
-                        }
-                        if(isEndPointAvailable)
-                            break;
+        for (SubscriptionDataCriteria criterion : query.getCriteria()) {
+
+            String value = criterion.getValue();
+            if (criterion.getCriteria() == null || value == null) {
+                continue;
+            }
+            switch (criterion.getCriteria()) {
+                case SENDER:
+                    Long id = parseId(value);
+                    if (id == null) {
+                        break;
                     }
-                    if(!isEndPointAvailable){
-                        subscription.setEndpointName( "UNKNOWN" );
-                        subscription.setChannelName( "UNKNOWN" );
+                    if (SubCriteriaType.END_POINT.equals(criterion.getSubCriteria())) {
+                        builder.endPoint(id);
+                    } else if (SubCriteriaType.CHANNEL.equals(criterion.getSubCriteria())) {
+                        builder.channel(id);
+                    } else {
+                        builder.organisation(id);
                     }
-                }
-                if (isOrgAvailable)
                     break;
+
+                case VALIDITY_PERIOD:
+                    if (SubCriteriaType.START_DATE.equals(criterion.getSubCriteria())) {
+                        builder.startDate(parseDate(criterion));
+                    } else if (SubCriteriaType.END_DATE.equals(criterion.getSubCriteria())) {
+                        builder.endDate(parseDate(criterion));
+                    }
+                    break;
+
+                default:
             }
-            if(!isOrgAvailable){
-                 subscription.setOrganisationName( "UNKNOWN" );
-                 subscription.setEndpointName( "UNKNOWN" );
-                 subscription.setChannelName( "UNKNOWN" );
-            }
+        }
+
+        return builder.build();
+    }
+
+    private static Long parseId(String value) {
+        try {
+            return Long.valueOf(value.trim());
+        } catch (NumberFormatException e) {
+            return null;
+        }
+    }
+
+    private static long parseDate(SubscriptionDataCriteria criterion) {
+        if (criterion.getValueType() == null) {
+            throw new IllegalArgumentException("No value type for the " + criterion.getSubCriteria() + " " + criterion.getValue());
+        }
+        Date date;
+        try {
+            date = DateUtils.parseToUTCDate(criterion.getValue(), criterion.getValueType().value());
+        } catch (RuntimeException e) {
+            throw new IllegalArgumentException("Invalid " + criterion.getSubCriteria() + " " + criterion.getValue(), e);
+        }
+        if (date == null) {
+            throw new IllegalArgumentException("Invalid " + criterion.getSubCriteria() + " " + criterion.getValue());
+        }
+        return date.getTime();
+    }
+
+    public static List<SubscriptionEntity> enrichSubscriptionList(List<SubscriptionEntity> resultList, List<Organisation> organisationList) {
+        return enrichSubscriptionList(resultList, OrganisationLookup.of(organisationList));
+    }
+
+    /**
+     * Sets the names of the organisation, end point and channel of the subscriptions, "UNKNOWN" for those that are
+     * not in the lookup. Left untouched when the lookup is empty.
+     */
+    public static List<SubscriptionEntity> enrichSubscriptionList(List<SubscriptionEntity> resultList, OrganisationLookup lookup) {
+
+        if (lookup.isEmpty()) {
+            return resultList;
+        }
+        for (SubscriptionEntity subscription : resultList){
+            subscription.setOrganisationName(lookup.organisationName(subscription.getOrganisation()));
+            subscription.setEndpointName(lookup.endPointName(subscription.getOrganisation(), subscription.getEndPoint()));
+            subscription.setChannelName(lookup.channelName(subscription.getOrganisation(), subscription.getEndPoint(), subscription.getChannel()));
         }
 
         return resultList;
     }
+
+    /**
+     * Same as {@link #enrichSubscriptionList(List, OrganisationLookup)} for the rows of a summary page.
+     */
+    public static List<SubscriptionSummaryDto> enrichSubscriptionSummaries(List<SubscriptionSummaryDto> resultList, OrganisationLookup lookup) {
+
+        if (lookup.isEmpty()) {
+            return resultList;
+        }
+        for (SubscriptionSummaryDto summary : resultList){
+            enrichSubscriptionSummary(summary, lookup);
+        }
+
+        return resultList;
+    }
+
+    public static SubscriptionSummaryDto enrichSubscriptionSummary(SubscriptionSummaryDto summary, OrganisationLookup lookup) {
+
+        if (lookup.isEmpty()) {
+            return summary;
+        }
+        summary.setOrganisationName(lookup.organisationName(summary.getOrganisation()));
+        summary.setEndpointName(lookup.endPointName(summary.getOrganisation(), summary.getEndPoint()));
+        summary.setChannelName(lookup.channelName(summary.getOrganisation(), summary.getEndPoint(), summary.getChannel()));
+        return summary;
+    }
 }
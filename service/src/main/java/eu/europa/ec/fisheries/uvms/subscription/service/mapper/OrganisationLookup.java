@@ -0,0 +1,128 @@
+/*
+ Developed by the European Commission - Directorate General for Maritime Affairs and Fisheries @ European Union, 2015-2016.
+
+ This file is part of the Integrated Fisheries Data Management (IFDM) Suite. The IFDM Suite is free software: you can redistribute it
+ and/or modify it under the terms of the GNU General Public License as published by the Free Software Foundation, either version 3 of
+ the License, or any later version. The IFDM Suite is distributed in the hope that it will be useful, but WITHOUT ANY WARRANTY;
+ without even the implied warranty of MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU General Public License for more
+ details. You should have received a copy of the GNU General Public License along with the IFDM Suite. If not, see <http://www.gnu.org/licenses/>.
+ */
+
+
+package eu.europa.ec.fisheries.uvms.subscription.service.mapper;
+
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import eu.europa.ec.fisheries.wsdl.user.types.Channel;
+import eu.europa.ec.fisheries.wsdl.user.types.EndPoint;
+import eu.europa.ec.fisheries.wsdl.user.types.Organisation;
+import org.apache.commons.lang.StringUtils;
+
+/**
+ * Names of the organisations, their end points and the channels of these end points, indexed by id. End points are
+ * looked up within their organisation and channels within their end point, as the same end point may be listed under
+ * several organisations. Built once per organisation list, each lookup is then a constant time map access.
+ */
+public final class OrganisationLookup {
+
+    public static final String UNKNOWN = "UNKNOWN";
+
+    private static final OrganisationLookup EMPTY = new OrganisationLookup(Collections.<Long, OrganisationNames>emptyMap());
+
+    private final Map<Long, OrganisationNames> organisations;
+
+    private OrganisationLookup(Map<Long, OrganisationNames> organisations) {
+        this.organisations = organisations;
+    }
+
+    public static OrganisationLookup of(List<Organisation> organisationList) {
+        if (organisationList == null || organisationList.isEmpty()) {
+            return EMPTY;
+        }
+        Map<Long, OrganisationNames> organisations = new HashMap<>(organisationList.size() * 2);
+        for (Organisation organisation : organisationList) {
+            Long id = organisation.getId();
+            if (id != null && !organisations.containsKey(id)) {
+                organisations.put(id, new OrganisationNames(organisation));
+            }
+        }
+        return new OrganisationLookup(organisations);
+    }
+
+    public boolean isEmpty() {
+        return organisations.isEmpty();
+    }
+
+    /**
+     * @return the name of the organisation, prefixed by the name of its parent if any, {@link #UNKNOWN} if the
+     * organisation is not known
+     */
+    public String organisationName(Long organisation) {
+        OrganisationNames names = organisation == null ? null : organisations.get(organisation);
+        return names == null ? UNKNOWN : names.name;
+    }
+
+    /**
+     * @return the name of the end point of the organisation, {@link #UNKNOWN} if either is not known
+     */
+    public String endPointName(Long organisation, Long endPoint) {
+        EndPointNames names = endPoint(organisation, endPoint);
+        return names == null ? UNKNOWN : names.name;
+    }
+
+    /**
+     * @return the data flow of the channel of the end point of the organisation, {@link #UNKNOWN} if any of them is
+     * not known
+     */
+    public String channelName(Long organisation, Long endPoint, Long channel) {
+        EndPointNames names = endPoint(organisation, endPoint);
+        if (names == null || channel == null || !names.channels.containsKey(channel)) {
+            return UNKNOWN;
+        }
+        return names.channels.get(channel);
+    }
+
+    private EndPointNames endPoint(Long organisation, Long endPoint) {
+        OrganisationNames names = organisation == null ? null : organisations.get(organisation);
+        return names == null || endPoint == null ? null : names.endPoints.get(endPoint);
+    }
+
+    private static class OrganisationNames {
+
+        private final String name;
+        private final Map<Long, EndPointNames> endPoints = new HashMap<>();
+
+        private OrganisationNames(Organisation organisation) {
+            if (StringUtils.isNotEmpty(organisation.getParentOrganisation())) {
+                name = organisation.getParentOrganisation() + " / " + organisation.getName();
+            } else {
+                name = organisation.getName();
+            }
+            for (EndPoint endPoint : organisation.getEndPoints()) {
+                Long id = endPoint.getId();
+                if (id != null && !endPoints.containsKey(id)) {
+                    endPoints.put(id, new EndPointNames(endPoint));
+                }
+            }
+        }
+    }
+
+    private static class EndPointNames {
+
+        private final String name;
+        private final Map<Long, String> channels = new HashMap<>();
+
+        private EndPointNames(EndPoint endPoint) {
+            name = endPoint.getName();
+            for (Channel channel : endPoint.getChannels()) {
+                Long id = channel.getId();
+                if (id != null && !channels.containsKey(id)) {
+                    channels.put(id, channel.getDataFlow());
+                }
+            }
+        }
+    }
+}
@@ -23,9 +23,9 @@ public interface SubscriptionMapper {
 
     @Mappings({@Mapping(target = "startDate", source = "validityPeriod.startDate"), @Mapping(target = "endDate", source = "validityPeriod.endDate"), @Mapping(target = "active", source = "enabled"), @Mapping(ignore = true, target = "conditions"), @Mapping(ignore = true, target = "areas")}) SubscriptionDto mapEntityToDto(SubscriptionEntity subscription);
 
-    @InheritInverseConfiguration @Mappings({@Mapping(target = "stateType", constant = "INACTIVE"), @Mapping(ignore = true, target = "conditions"), @Mapping(ignore = true, target = "areas"),}) SubscriptionEntity mapDtoToEntity(SubscriptionDto subscription);
+    @InheritInverseConfiguration @Mappings({@Mapping(target = "stateType", constant = "INACTIVE"), @Mapping(ignore = true, target = "conditions"), @Mapping(ignore = true, target = "areas"), @Mapping(ignore = true, target = "version"),}) SubscriptionEntity mapDtoToEntity(SubscriptionDto subscription);
 
-    @Mappings({@Mapping(source = "startDate", target = "validityPeriod.startDate"), @Mapping(source = "endDate", target = "validityPeriod.endDate"), @Mapping(source = "active", target = "enabled"), @Mapping(ignore = true, target = "conditions"), @Mapping(ignore = true, target = "guid"), @Mapping(ignore = true, target = "areas"), @Mapping(ignore = true, target = "stateType"),
+    @Mappings({@Mapping(source = "startDate", target = "validityPeriod.startDate"), @Mapping(source = "endDate", target = "validityPeriod.endDate"), @Mapping(source = "active", target = "enabled"), @Mapping(ignore = true, target = "conditions"), @Mapping(ignore = true, target = "guid"), @Mapping(ignore = true, target = "areas"), @Mapping(ignore = true, target = "stateType"), @Mapping(ignore = true, target = "version"),
 
     }) void updateEntity(SubscriptionDto dto, @MappingTarget SubscriptionEntity entity);
 
@@ -0,0 +1,191 @@
+/*
+ Developed by the European Commission - Directorate General for Maritime Affairs and Fisheries @ European Union, 2015-2016.
+
+ This file is part of the Integrated Fisheries Data Management (IFDM) Suite. The IFDM Suite is free software: you can redistribute it
+ and/or modify it under the terms of the GNU General Public License as published by the Free Software Foundation, either version 3 of
+ the License, or any later version. The IFDM Suite is distributed in the hope that it will be useful, but WITHOUT ANY WARRANTY;
+ without even the implied warranty of MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU General Public License for more
+ details. You should have received a copy of the GNU General Public License along with the IFDM Suite. If not, see <http://www.gnu.org/licenses/>.
+*/
+
+package eu.europa.ec.fisheries.uvms.subscription.service.messaging;
+
+import javax.xml.bind.JAXBContext;
+import javax.xml.bind.JAXBException;
+import javax.xml.bind.Marshaller;
+import javax.xml.bind.Unmarshaller;
+import javax.xml.stream.XMLInputFactory;
+import javax.xml.stream.XMLStreamConstants;
+import javax.xml.stream.XMLStreamException;
+import javax.xml.stream.XMLStreamReader;
+import java.io.StringReader;
+import java.io.StringWriter;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.ConcurrentMap;
+
+import eu.europa.ec.fisheries.wsdl.subscription.module.SubscriptionModuleMethod;
+
+/**
+ * Decoding and encoding of the messages of the subscription module.
+ * <p>
+ * The method of a request is read with a StAX peek that stops at the method element, then the message is unmarshalled
+ * once into the concrete request type. JAXB contexts are created once per type; marshallers and unmarshallers are
+ * not thread safe, so they are borrowed from a per type pool for the duration of one call and returned afterwards.
+ */
+public final class SubscriptionMessageCodec {
+
+    /**
+     * Answer to a PING, constant so that it is sent without JAXB.
+     */
+    public static final String PING_RESPONSE = "<ns2:pingResponse xmlns:ns2=\"module.subscription.wsdl.fisheries.ec.europa.eu\">"
+            + "<response>pong</response></ns2:pingResponse>";
+
+    private static final String METHOD_ELEMENT = "method";
+
+    private static final String METHOD_START_TAG = "<method>";
+
+    private static final int SCAN_LIMIT = 512;
+
+    private static final int MAX_POOLED = 16;
+
+    private static final XMLInputFactory INPUT_FACTORY = createInputFactory();
+
+    private static final ConcurrentMap<Class<?>, JAXBContext> CONTEXTS = new ConcurrentHashMap<>();
+
+    private static final ConcurrentMap<Class<?>, Queue<Unmarshaller>> UNMARSHALLERS = new ConcurrentHashMap<>();
+
+    private static final ConcurrentMap<Class<?>, Queue<Marshaller>> MARSHALLERS = new ConcurrentHashMap<>();
+
+    private SubscriptionMessageCodec(){
+
+    }
+
+    /**
+     * Cheap scan for the method element within the first characters of the message, the method being the first element
+     * of every request. Meant to recognise trivial requests without parsing them.
+     * @return the method of the request, null if it is not found by the scan
+     */
+    public static SubscriptionModuleMethod scanMethod(String message) {
+        if (message == null) {
+            return null;
+        }
+        int start = message.indexOf(METHOD_START_TAG);
+        if (start < 0 || start > SCAN_LIMIT) {
+            return null;
+        }
+        start += METHOD_START_TAG.length();
+        int end = message.indexOf('<', start);
+        if (end < 0) {
+            return null;
+        }
+        String value = message.substring(start, end).trim();
+        for (SubscriptionModuleMethod method : SubscriptionModuleMethod.values()) {
+            if (method.value().equals(value)) {
+                return method;
+            }
+        }
+        return null;
+    }
+
+    /**
+     * @return the method of the request, null if the message has no method element
+     * @throws JAXBException when the message is not well formed or the method is unknown
+     */
+    public static SubscriptionModuleMethod peekMethod(String message) throws JAXBException {
+        XMLStreamReader reader = null;
+        try {
+            reader = INPUT_FACTORY.createXMLStreamReader(new StringReader(message));
+            while (reader.hasNext()) {
+                if (reader.next() == XMLStreamConstants.START_ELEMENT && METHOD_ELEMENT.equals(reader.getLocalName())) {
+                    return SubscriptionModuleMethod.fromValue(reader.getElementText().trim());
+                }
+            }
+            return null;
+        } catch (XMLStreamException | IllegalArgumentException e) {
+            throw new JAXBException("Unable to read the method of the message", e);
+        } finally {
+            close(reader);
+        }
+    }
+
+    public static <T> T unmarshal(String message, Class<T> type) throws JAXBException {
+        Unmarshaller unmarshaller = borrow(UNMARSHALLERS, type);
+        if (unmarshaller == null) {
+            unmarshaller = context(type).createUnmarshaller();
+        }
+        XMLStreamReader reader = null;
+        try {
+            reader = INPUT_FACTORY.createXMLStreamReader(new StringReader(message));
+            T value = unmarshaller.unmarshal(reader, type).getValue();
+            giveBack(UNMARSHALLERS, type, unmarshaller);
+            return value;
+        } catch (XMLStreamException e) {
+            throw new JAXBException("Unable to read the message", e);
+        } finally {
+            close(reader);
+        }
+    }
+
+    public static String marshal(Object value) throws JAXBException {
+        Class<?> type = value.getClass();
+        Marshaller marshaller = borrow(MARSHALLERS, type);
+        if (marshaller == null) {
+            marshaller = context(type).createMarshaller();
+        }
+        StringWriter writer = new StringWriter();
+        marshaller.marshal(value, writer);
+        giveBack(MARSHALLERS, type, marshaller);
+        return writer.toString();
+    }
+
+    private static JAXBContext context(Class<?> type) throws JAXBException {
+        JAXBContext context = CONTEXTS.get(type);
+        if (context == null) {
+            context = JAXBContext.newInstance(type);
+            JAXBContext existing = CONTEXTS.putIfAbsent(type, context);
+            if (existing != null) {
+                context = existing;
+            }
+        }
+        return context;
+    }
+
+    private static <P> P borrow(ConcurrentMap<Class<?>, Queue<P>> pools, Class<?> type) {
+        Queue<P> pool = pools.get(type);
+        return pool == null ? null : pool.poll();
+    }
+
+    /**
+     * Only called after a successful call, an instance that failed half way is dropped.
+     */
+    private static <P> void giveBack(ConcurrentMap<Class<?>, Queue<P>> pools, Class<?> type, P pooled) {
+        Queue<P> pool = pools.get(type);
+        if (pool == null) {
+            pools.putIfAbsent(type, new ConcurrentLinkedQueue<P>());
+            pool = pools.get(type);
+        }
+        // the size is only an estimate under contention, the pool may slightly exceed its bound
+        if (pool.size() < MAX_POOLED) {
+            pool.offer(pooled);
+        }
+    }
+
+    private static void close(XMLStreamReader reader) {
+        if (reader != null) {
+            try {
+                reader.close();
+            } catch (XMLStreamException e) {
+                // nothing to release for a string source
+            }
+        }
+    }
+
+    private static XMLInputFactory createInputFactory() {
+        XMLInputFactory factory = XMLInputFactory.newInstance();
+        factory.setProperty(XMLInputFactory.SUPPORT_DTD, false);
+        factory.setProperty(XMLInputFactory.IS_SUPPORTING_EXTERNAL_ENTITIES, false);
+        return factory;
+    }
+}
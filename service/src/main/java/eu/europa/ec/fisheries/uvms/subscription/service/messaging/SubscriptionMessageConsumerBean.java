@@ -20,15 +20,21 @@
 
 package eu.europa.ec.fisheries.uvms.subscription.service.messaging;
 
-import static eu.europa.ec.fisheries.uvms.commons.message.impl.JAXBUtils.marshallJaxBObjectToString;
-import static eu.europa.ec.fisheries.uvms.commons.message.impl.JAXBUtils.unMarshallMessage;
+import static eu.europa.ec.fisheries.uvms.subscription.service.messaging.SubscriptionMessageCodec.PING_RESPONSE;
+import static eu.europa.ec.fisheries.uvms.subscription.service.messaging.SubscriptionMessageCodec.marshal;
+import static eu.europa.ec.fisheries.uvms.subscription.service.messaging.SubscriptionMessageCodec.peekMethod;
+import static eu.europa.ec.fisheries.uvms.subscription.service.messaging.SubscriptionMessageCodec.scanMethod;
+import static eu.europa.ec.fisheries.uvms.subscription.service.messaging.SubscriptionMessageCodec.unmarshal;
 
 import eu.europa.ec.fisheries.uvms.commons.message.api.MessageConstants;
 import eu.europa.ec.fisheries.uvms.commons.message.api.MessageException;
 import eu.europa.ec.fisheries.uvms.subscription.service.bean.SubscriptionServiceBean;
-import eu.europa.ec.fisheries.wsdl.subscription.module.SubscriptionBaseRequest;
+import eu.europa.ec.fisheries.wsdl.subscription.module.SubscriptionBatchDataRequest;
+import eu.europa.ec.fisheries.wsdl.subscription.module.SubscriptionBatchPermissionResponse;
 import eu.europa.ec.fisheries.wsdl.subscription.module.SubscriptionDataRequest;
+import eu.europa.ec.fisheries.wsdl.subscription.module.SubscriptionModuleMethod;
 import eu.europa.ec.fisheries.wsdl.subscription.module.SubscriptionPermissionResponse;
+import eu.europa.fisheries.uvms.subscription.model.mapper.SubscriptionModuleRequestMapper;
 import javax.ejb.ActivationConfigProperty;
 import javax.ejb.EJB;
 import javax.ejb.MessageDriven;
@@ -45,17 +51,29 @@ import lombok.extern.slf4j.Slf4j;
 @MessageDriven(mappedName = MessageConstants.QUEUE_SUBSCRIPTION_EVENT, activationConfig = {
         @ActivationConfigProperty(propertyName = MessageConstants.MESSAGING_TYPE_STR, propertyValue = MessageConstants.CONNECTION_TYPE),
         @ActivationConfigProperty(propertyName = MessageConstants.DESTINATION_TYPE_STR, propertyValue = MessageConstants.DESTINATION_TYPE_QUEUE),
-        @ActivationConfigProperty(propertyName = MessageConstants.DESTINATION_STR, propertyValue = MessageConstants.QUEUE_NAME_SUBSCRIPTION_EVENT)
+        @ActivationConfigProperty(propertyName = MessageConstants.DESTINATION_STR, propertyValue = MessageConstants.QUEUE_NAME_SUBSCRIPTION_EVENT),
+        @ActivationConfigProperty(propertyName = "messageSelector", propertyValue = SubscriptionMessageConsumerBean.SELECTOR)
 })
 @Slf4j
 public class SubscriptionMessageConsumerBean implements MessageListener {
 
+    /**
+     * Everything but the PINGs flagged as such, those are consumed by {@link SubscriptionPingConsumerBean}.
+     */
+    static final String SELECTOR = SubscriptionModuleRequestMapper.METHOD_PROPERTY + " IS NULL OR "
+            + SubscriptionModuleRequestMapper.METHOD_PROPERTY + " <> 'PING'";
+
     @EJB
     private SubscriptionProducerBean subscriptionProducer;
 
     @EJB
     private SubscriptionServiceBean subscriptionService;
 
+    /**
+     * Trivial requests (PING, DATA_CHANGE_REQUEST) are recognised with a cheap scan and answered without JAXB.
+     * Every message is consumed in its own transaction, a failure rolls it back and the message is redelivered.
+     * PINGs sent without the {@link SubscriptionModuleRequestMapper#METHOD_PROPERTY} property still end up here.
+     */
     @Override
     @TransactionAttribute(TransactionAttributeType.REQUIRES_NEW)
     public void onMessage(Message message) {
@@ -64,23 +82,39 @@ public class SubscriptionMessageConsumerBean implements MessageListener {
         String jmsMessageID = null;
         Destination jmsReplyTo = null;
         try {
-            log.info("[INFO] Received message in Subscription...");
             jmsReplyTo = message.getJMSReplyTo();
             textMessage = (TextMessage) message;
             jmsCorrelationID = textMessage.getJMSCorrelationID();
             jmsMessageID = textMessage.getJMSMessageID();
-            SubscriptionBaseRequest moduleRequest = unMarshallMessage(textMessage.getText(), SubscriptionBaseRequest.class);
-            switch (moduleRequest.getMethod()) {
+            String text = textMessage.getText();
+            SubscriptionModuleMethod method = scanMethod(text);
+            if (method == null) {
+                method = peekMethod(text);
+            }
+            if (method == null) {
+                throw new JAXBException("Message without method");
+            }
+            log.debug("Received {} in Subscription...", method);
+            switch (method) {
                 case PING :
+                    subscriptionProducer.sendMessageWithSpecificIds(PING_RESPONSE, jmsReplyTo, null, jmsMessageID, jmsCorrelationID);
                     break;
                 case MODULE_ACCESS_PERMISSION_REQUEST :
                     log.info("[START] Received MODULE_ACCESS_PERMISSION_REQUEST..");
-                    SubscriptionDataRequest request = unMarshallMessage(textMessage.getText(), SubscriptionDataRequest.class);
+                    SubscriptionDataRequest request = unmarshal(text, SubscriptionDataRequest.class);
                     SubscriptionPermissionResponse dataRequestAllowed = subscriptionService.hasActiveSubscriptions(request.getQuery());
-                    log.info("[INFO] Checked permissions... Going to send back : " + dataRequestAllowed.getSubscriptionCheck());
-                    String messageToSend = marshallJaxBObjectToString(dataRequestAllowed);
+                    log.info("[INFO] Checked permissions... Going to send back : {}", dataRequestAllowed.getSubscriptionCheck());
+                    String messageToSend = marshal(dataRequestAllowed);
                     subscriptionProducer.sendMessageWithSpecificIds(messageToSend, jmsReplyTo, null, jmsMessageID, jmsCorrelationID);
-                    log.info("[END] Answer sent to queue : " + jmsReplyTo);
+                    log.info("[END] Answer sent to queue : {}", jmsReplyTo);
+                    break;
+                case MODULE_ACCESS_PERMISSION_BATCH_REQUEST :
+                    log.info("[START] Received MODULE_ACCESS_PERMISSION_BATCH_REQUEST..");
+                    SubscriptionBatchDataRequest batchRequest = unmarshal(text, SubscriptionBatchDataRequest.class);
+                    SubscriptionBatchPermissionResponse batchResponse = subscriptionService.hasActiveSubscriptions(batchRequest.getQueries());
+                    log.info("[INFO] Checked permissions of {} queries...", batchResponse.getAnswers().size());
+                    subscriptionProducer.sendMessageWithSpecificIds(marshal(batchResponse), jmsReplyTo, null, jmsMessageID, jmsCorrelationID);
+                    log.info("[END] Answer sent to queue : {}", jmsReplyTo);
                     break;
                 case DATA_CHANGE_REQUEST :
                     log.error("DATA_CHANGE_REQUEST not implemented yet!");
@@ -0,0 +1,56 @@
+/*
+ Developed by the European Commission - Directorate General for Maritime Affairs and Fisheries @ European Union, 2015-2016.
+
+ This file is part of the Integrated Fisheries Data Management (IFDM) Suite. The IFDM Suite is free software: you can redistribute it
+ and/or modify it under the terms of the GNU General Public License as published by the Free Software Foundation, either version 3 of
+ the License, or any later version. The IFDM Suite is distributed in the hope that it will be useful, but WITHOUT ANY WARRANTY;
+ without even the implied warranty of MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU General Public License for more
+ details. You should have received a copy of the GNU General Public License along with the IFDM Suite. If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package eu.europa.ec.fisheries.uvms.subscription.service.messaging;
+
+import static eu.europa.ec.fisheries.uvms.subscription.service.messaging.SubscriptionMessageCodec.PING_RESPONSE;
+
+import eu.europa.ec.fisheries.uvms.commons.message.api.MessageConstants;
+import eu.europa.ec.fisheries.uvms.commons.message.api.MessageException;
+import eu.europa.fisheries.uvms.subscription.model.mapper.SubscriptionModuleRequestMapper;
+import javax.ejb.ActivationConfigProperty;
+import javax.ejb.EJB;
+import javax.ejb.MessageDriven;
+import javax.ejb.TransactionAttribute;
+import javax.ejb.TransactionAttributeType;
+import javax.jms.JMSException;
+import javax.jms.Message;
+import javax.jms.MessageListener;
+import lombok.extern.slf4j.Slf4j;
+
+/**
+ * Answers the PINGs sent to the subscription event queue with the {@link SubscriptionModuleRequestMapper#METHOD_PROPERTY}
+ * property set to PING, the selector routes them here instead of {@link SubscriptionMessageConsumerBean}.
+ * A health check reads and writes nothing, so it is answered without a transaction and without parsing the message.
+ */
+@MessageDriven(mappedName = MessageConstants.QUEUE_SUBSCRIPTION_EVENT, activationConfig = {
+        @ActivationConfigProperty(propertyName = MessageConstants.MESSAGING_TYPE_STR, propertyValue = MessageConstants.CONNECTION_TYPE),
+        @ActivationConfigProperty(propertyName = MessageConstants.DESTINATION_TYPE_STR, propertyValue = MessageConstants.DESTINATION_TYPE_QUEUE),
+        @ActivationConfigProperty(propertyName = MessageConstants.DESTINATION_STR, propertyValue = MessageConstants.QUEUE_NAME_SUBSCRIPTION_EVENT),
+        @ActivationConfigProperty(propertyName = "messageSelector", propertyValue = SubscriptionPingConsumerBean.SELECTOR)
+})
+@Slf4j
+public class SubscriptionPingConsumerBean implements MessageListener {
+
+    static final String SELECTOR = SubscriptionModuleRequestMapper.METHOD_PROPERTY + " = 'PING'";
+
+    @EJB
+    private SubscriptionProducerBean subscriptionProducer;
+
+    @Override
+    @TransactionAttribute(TransactionAttributeType.NOT_SUPPORTED)
+    public void onMessage(Message message) {
+        try {
+            subscriptionProducer.sendMessageWithSpecificIds(PING_RESPONSE, message.getJMSReplyTo(), null, message.getJMSMessageID(), message.getJMSCorrelationID());
+        } catch (MessageException | JMSException e) {
+            log.error("[ERROR] Unable to answer the PING", e);
+        }
+    }
+}
@@ -0,0 +1,144 @@
+/*
+ Developed by the European Commission - Directorate General for Maritime Affairs and Fisheries @ European Union, 2015-2016.
+
+ This file is part of the Integrated Fisheries Data Management (IFDM) Suite. The IFDM Suite is free software: you can redistribute it
+ and/or modify it under the terms of the GNU General Public License as published by the Free Software Foundation, either version 3 of
+ the License, or any later version. The IFDM Suite is distributed in the hope that it will be useful, but WITHOUT ANY WARRANTY;
+ without even the implied warranty of MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU General Public License for more
+ details. You should have received a copy of the GNU General Public License along with the IFDM Suite. If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package eu.europe.ec.fisheries.uvms.subscription.bean;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertSame;
+
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicReference;
+
+import eu.europa.ec.fisheries.uvms.subscription.service.bean.OrganisationDirectoryBean;
+import eu.europa.ec.fisheries.uvms.subscription.service.mapper.OrganisationLookup;
+import eu.europa.ec.fisheries.wsdl.user.types.Organisation;
+import lombok.SneakyThrows;
+import org.junit.Test;
+
+public class OrganisationDirectoryBeanTest {
+
+    private TestDirectory directory = new TestDirectory();
+
+    @Test
+    @SneakyThrows
+    public void testFirstLoadIsKept(){
+        OrganisationLookup first = directory.getOrganisations("scope", "role", "user").get();
+        OrganisationLookup second = directory.getOrganisations("scope", "role", "user").get();
+
+        assertEquals("ORG", first.organisationName(1L));
+        assertSame(first, second);
+        assertEquals(1, directory.requests.get());
+    }
+
+    @Test
+    @SneakyThrows
+    public void testScopesAndRolesAreLoadedSeparately(){
+        directory.getOrganisations("scope", "role", "user").get();
+        directory.getOrganisations("scope", "other", "user").get();
+
+        assertEquals(2, directory.requests.get());
+    }
+
+    @Test
+    @SneakyThrows
+    public void testConcurrentFirstCallersWaitForTheSameLoad(){
+        directory.release = new CountDownLatch(1);
+        Caller first = new Caller();
+        first.start();
+        while (directory.requests.get() == 0) {
+            Thread.sleep(5L);
+        }
+        Caller second = new Caller();
+        second.start();
+        // the second caller waits for the load of the first one
+        while (second.getState() != Thread.State.WAITING) {
+            Thread.sleep(5L);
+        }
+        directory.release.countDown();
+        first.join();
+        second.join();
+
+        assertEquals(1, directory.requests.get());
+        assertNotNull(first.result.get());
+        assertSame(first.result.get(), second.result.get());
+    }
+
+    @Test
+    @SneakyThrows
+    public void testUnreachableUserModule(){
+        directory.reachable = false;
+        assertNull(directory.getOrganisations("scope", "role", "user").get());
+
+        // the failed load is not kept, the next request tries again
+        directory.reachable = true;
+        OrganisationLookup organisations = directory.getOrganisations("scope", "role", "user").get();
+        assertEquals("ORG", organisations.organisationName(1L));
+        assertEquals(2, directory.requests.get());
+    }
+
+    @Test
+    @SneakyThrows
+    public void testNoAnswerFromTheUserModule(){
+        directory.answer = null;
+        assertNull(directory.getOrganisations("scope", "role", "user").get());
+    }
+
+    private class Caller extends Thread {
+
+        private final AtomicReference<OrganisationLookup> result = new AtomicReference<>();
+
+        @Override
+        @SneakyThrows
+        public void run() {
+            result.set(directory.getOrganisations("scope", "role", "user").get());
+        }
+    }
+
+    /**
+     * Calls its asynchronous methods directly and answers for the User module.
+     */
+    private static class TestDirectory extends OrganisationDirectoryBean {
+
+        private final AtomicInteger requests = new AtomicInteger();
+
+        private volatile CountDownLatch release = new CountDownLatch(0);
+
+        private volatile boolean reachable = true;
+
+        private volatile List<Organisation> answer = Collections.singletonList(organisation(1L, "ORG"));
+
+        @Override
+        protected List<Organisation> requestOrganisations(String scopeName, String roleName, String requester) throws Exception {
+            requests.incrementAndGet();
+            release.await();
+            if (!reachable) {
+                throw new IllegalStateException("User module unreachable");
+            }
+            return answer;
+        }
+
+        @Override
+        protected OrganisationDirectoryBean self() {
+            return this;
+        }
+    }
+
+    private static Organisation organisation(long id, String name) {
+        Organisation organisation = new Organisation();
+        organisation.setId(id);
+        organisation.setName(name);
+        return organisation;
+    }
+}
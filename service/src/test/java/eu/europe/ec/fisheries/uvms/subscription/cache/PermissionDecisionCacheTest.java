@@ -0,0 +1,103 @@
+/*
+ Developed by the European Commission - Directorate General for Maritime Affairs and Fisheries @ European Union, 2015-2016.
+
+ This file is part of the Integrated Fisheries Data Management (IFDM) Suite. The IFDM Suite is free software: you can redistribute it
+ and/or modify it under the terms of the GNU General Public License as published by the Free Software Foundation, either version 3 of
+ the License, or any later version. The IFDM Suite is distributed in the hope that it will be useful, but WITHOUT ANY WARRANTY;
+ without even the implied warranty of MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU General Public License for more
+ details. You should have received a copy of the GNU General Public License along with the IFDM Suite. If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package eu.europe.ec.fisheries.uvms.subscription.cache;
+
+import static eu.europa.ec.fisheries.wsdl.subscription.module.MessageType.FLUX_FA_REPORT_MESSAGE;
+import static eu.europa.ec.fisheries.wsdl.subscription.module.MessageType.FLUX_SALES_MESSAGE;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+import java.util.Arrays;
+
+import eu.europa.ec.fisheries.uvms.subscription.service.cache.PermissionCacheKey;
+import eu.europa.ec.fisheries.uvms.subscription.service.cache.PermissionDecisionCache;
+import eu.europa.ec.fisheries.uvms.subscription.service.dto.PermissionCacheStatisticsDto;
+import eu.europa.ec.fisheries.uvms.subscription.service.index.PermissionQuery;
+import eu.europa.ec.fisheries.wsdl.subscription.module.CriteriaType;
+import eu.europa.ec.fisheries.wsdl.subscription.module.MessageType;
+import eu.europa.ec.fisheries.wsdl.subscription.module.SubCriteriaType;
+import eu.europa.ec.fisheries.wsdl.subscription.module.SubscriptionDataCriteria;
+import org.junit.Test;
+
+public class PermissionDecisionCacheTest {
+
+    private PermissionDecisionCache cache = new PermissionDecisionCache(2, 100L);
+
+    @Test
+    public void testHitMissAndTimeToLive(){
+        cache.put(key(FLUX_FA_REPORT_MESSAGE, 1L), true, cache.generation(), 0L);
+
+        assertTrue(cache.get(key(FLUX_FA_REPORT_MESSAGE, 1L), 50L));
+        assertNull(cache.get(key(FLUX_FA_REPORT_MESSAGE, 2L), 50L));
+        assertNull(cache.get(key(FLUX_FA_REPORT_MESSAGE, 1L), 100L));
+
+        PermissionCacheStatisticsDto statistics = cache.getStatistics();
+        assertEquals(1, statistics.getHits());
+        assertEquals(2, statistics.getMisses());
+        assertEquals(0, statistics.getSize());
+    }
+
+    @Test
+    public void testLeastRecentlyUsedIsEvicted(){
+        cache.put(key(FLUX_FA_REPORT_MESSAGE, 1L), true, cache.generation(), 0L);
+        cache.put(key(FLUX_FA_REPORT_MESSAGE, 2L), true, cache.generation(), 0L);
+        cache.get(key(FLUX_FA_REPORT_MESSAGE, 1L), 0L);
+        cache.put(key(FLUX_FA_REPORT_MESSAGE, 3L), false, cache.generation(), 0L);
+
+        assertNull(cache.get(key(FLUX_FA_REPORT_MESSAGE, 2L), 0L));
+        assertTrue(cache.get(key(FLUX_FA_REPORT_MESSAGE, 1L), 0L));
+        assertEquals(1, cache.getStatistics().getEvictions());
+    }
+
+    @Test
+    public void testInvalidationIsSelective(){
+        cache.put(key(FLUX_FA_REPORT_MESSAGE, 1L), true, cache.generation(), 0L);
+        cache.put(key(FLUX_SALES_MESSAGE, 1L), true, cache.generation(), 0L);
+
+        cache.invalidate(FLUX_FA_REPORT_MESSAGE, 1L);
+
+        assertNull(cache.get(key(FLUX_FA_REPORT_MESSAGE, 1L), 0L));
+        assertTrue(cache.get(key(FLUX_SALES_MESSAGE, 1L), 0L));
+        assertEquals(1, cache.getStatistics().getInvalidations());
+    }
+
+    @Test
+    public void testDecisionComputedBeforeInvalidationIsNotStored(){
+        long generation = cache.generation();
+        cache.invalidate(FLUX_FA_REPORT_MESSAGE, 1L);
+        cache.put(key(FLUX_FA_REPORT_MESSAGE, 1L), true, generation, 0L);
+
+        assertNull(cache.get(key(FLUX_FA_REPORT_MESSAGE, 1L), 0L));
+    }
+
+    @Test
+    public void testKeyIgnoresCriteriaOrder(){
+        PermissionQuery first = PermissionQuery.builder().messageType(FLUX_FA_REPORT_MESSAGE)
+                .criteria(Arrays.asList(criterion(SubCriteriaType.OWNER_PARTY, "BEL"), criterion(SubCriteriaType.CHANNEL, "1"))).build();
+        PermissionQuery second = PermissionQuery.builder().messageType(FLUX_FA_REPORT_MESSAGE)
+                .criteria(Arrays.asList(criterion(SubCriteriaType.CHANNEL, "1"), criterion(SubCriteriaType.OWNER_PARTY, "BEL"))).build();
+
+        assertEquals(PermissionCacheKey.of(first), PermissionCacheKey.of(second));
+    }
+
+    private static PermissionCacheKey key(MessageType messageType, Long organisation){
+        return PermissionCacheKey.of(PermissionQuery.builder().messageType(messageType).organisation(organisation).build());
+    }
+
+    private static SubscriptionDataCriteria criterion(SubCriteriaType subCriteriaType, String value){
+        SubscriptionDataCriteria criterion = new SubscriptionDataCriteria();
+        criterion.setCriteria(CriteriaType.SENDER);
+        criterion.setSubCriteria(subCriteriaType);
+        criterion.setValue(value);
+        return criterion;
+    }
+}
@@ -0,0 +1,74 @@
+/*
+ Developed by the European Commission - Directorate General for Maritime Affairs and Fisheries @ European Union, 2015-2016.
+
+ This file is part of the Integrated Fisheries Data Management (IFDM) Suite. The IFDM Suite is free software: you can redistribute it
+ and/or modify it under the terms of the GNU General Public License as published by the Free Software Foundation, either version 3 of
+ the License, or any later version. The IFDM Suite is distributed in the hope that it will be useful, but WITHOUT ANY WARRANTY;
+ without even the implied warranty of MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU General Public License for more
+ details. You should have received a copy of the GNU General Public License along with the IFDM Suite. If not, see <http://www.gnu.org/licenses/>.
+ */
+
+
+package eu.europe.ec.fisheries.uvms.subscription.cache;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+import java.util.Collections;
+
+import eu.europa.ec.fisheries.uvms.subscription.service.cache.RefreshingCache;
+import org.junit.Test;
+
+public class RefreshingCacheTest {
+
+    private RefreshingCache<String, String> cache = new RefreshingCache<>(100L);
+
+    @Test
+    public void testSingleRefreshOfMissingValue(){
+        assertNull(cache.get("key"));
+        assertTrue(cache.startRefresh("key", 0L));
+        assertFalse(cache.startRefresh("key", 0L));
+
+        cache.refreshed("key", "first", 0L);
+
+        assertEquals("first", cache.get("key"));
+        assertFalse(cache.startRefresh("key", 50L));
+    }
+
+    @Test
+    public void testExpiredValueIsServedWhileRefreshing(){
+        cache.refreshed("key", "first", 0L);
+
+        assertTrue(cache.startRefresh("key", 100L));
+        assertEquals("first", cache.get("key"));
+        assertFalse(cache.startRefresh("key", 100L));
+
+        cache.refreshed("key", "second", 100L);
+        assertEquals("second", cache.get("key"));
+    }
+
+    @Test
+    public void testFailedRefreshKeepsValue(){
+        cache.refreshed("key", "first", 0L);
+        assertTrue(cache.startRefresh("key", 150L));
+
+        cache.refreshFailed("key");
+
+        assertEquals("first", cache.get("key"));
+        assertTrue(cache.startRefresh("key", 150L));
+    }
+
+    @Test
+    public void testExpireAll(){
+        cache.refreshed("key", "first", 0L);
+        assertEquals(Collections.emptyList(), cache.expiredKeys(50L));
+
+        assertEquals(Collections.singletonList("key"), cache.expireAll());
+
+        assertEquals(Collections.singletonList("key"), cache.expiredKeys(50L));
+        assertEquals("first", cache.get("key"));
+        assertTrue(cache.startRefresh("key", 50L));
+    }
+}
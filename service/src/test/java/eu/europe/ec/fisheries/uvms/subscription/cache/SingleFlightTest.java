@@ -0,0 +1,96 @@
+/*
+ Developed by the European Commission - Directorate General for Maritime Affairs and Fisheries @ European Union, 2015-2016.
+
+ This file is part of the Integrated Fisheries Data Management (IFDM) Suite. The IFDM Suite is free software: you can redistribute it
+ and/or modify it under the terms of the GNU General Public License as published by the Free Software Foundation, either version 3 of
+ the License, or any later version. The IFDM Suite is distributed in the hope that it will be useful, but WITHOUT ANY WARRANTY;
+ without even the implied warranty of MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU General Public License for more
+ details. You should have received a copy of the GNU General Public License along with the IFDM Suite. If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package eu.europe.ec.fisheries.uvms.subscription.cache;
+
+import static org.junit.Assert.assertEquals;
+
+import java.util.concurrent.Callable;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import eu.europa.ec.fisheries.uvms.subscription.service.cache.SingleFlight;
+import org.junit.Test;
+
+public class SingleFlightTest {
+
+    private SingleFlight<String, Integer> singleFlight = new SingleFlight<>();
+
+    @Test
+    public void testConcurrentCallsShareOneEvaluation() throws Exception {
+        final CountDownLatch started = new CountDownLatch(1);
+        final CountDownLatch release = new CountDownLatch(1);
+        final AtomicInteger evaluations = new AtomicInteger();
+        final Callable<Integer> evaluation = new Callable<Integer>() {
+            @Override
+            public Integer call() throws Exception {
+                evaluations.incrementAndGet();
+                started.countDown();
+                release.await(5, TimeUnit.SECONDS);
+                return 42;
+            }
+        };
+        ExecutorService executor = Executors.newFixedThreadPool(2);
+        try {
+            Future<Integer> first = executor.submit(new Callable<Integer>() {
+                @Override
+                public Integer call() {
+                    return singleFlight.execute("key", evaluation);
+                }
+            });
+            started.await(5, TimeUnit.SECONDS);
+            Future<Integer> second = executor.submit(new Callable<Integer>() {
+                @Override
+                public Integer call() {
+                    return singleFlight.execute("key", evaluation);
+                }
+            });
+            while (singleFlight.getCoalesced() == 0) {
+                Thread.sleep(1);
+            }
+            release.countDown();
+
+            assertEquals(42, first.get(5, TimeUnit.SECONDS).intValue());
+            assertEquals(42, second.get(5, TimeUnit.SECONDS).intValue());
+            assertEquals(1, evaluations.get());
+            assertEquals(2, singleFlight.getCalls());
+        } finally {
+            executor.shutdownNow();
+        }
+    }
+
+    @Test
+    public void testNothingIsKeptAfterEvaluation(){
+        final AtomicInteger evaluations = new AtomicInteger();
+        Callable<Integer> evaluation = new Callable<Integer>() {
+            @Override
+            public Integer call() {
+                return evaluations.incrementAndGet();
+            }
+        };
+        assertEquals(1, singleFlight.execute("key", evaluation).intValue());
+        assertEquals(2, singleFlight.execute("key", evaluation).intValue());
+        assertEquals(0, singleFlight.getCoalesced());
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void testFailureIsPropagated(){
+        singleFlight.execute("key", new Callable<Integer>() {
+            @Override
+            public Integer call() {
+                throw new IllegalArgumentException("failed");
+            }
+        });
+    }
+}
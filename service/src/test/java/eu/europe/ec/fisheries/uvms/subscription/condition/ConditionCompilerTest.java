@@ -0,0 +1,180 @@
+/*
+ Developed by the European Commission - Directorate General for Maritime Affairs and Fisheries @ European Union, 2015-2016.
+
+ This file is part of the Integrated Fisheries Data Management (IFDM) Suite. The IFDM Suite is free software: you can redistribute it
+ and/or modify it under the terms of the GNU General Public License as published by the Free Software Foundation, either version 3 of
+ the License, or any later version. The IFDM Suite is distributed in the hope that it will be useful, but WITHOUT ANY WARRANTY;
+ without even the implied warranty of MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU General Public License for more
+ details. You should have received a copy of the GNU General Public License along with the IFDM Suite. If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package eu.europe.ec.fisheries.uvms.subscription.condition;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+
+import eu.europa.ec.fisheries.uvms.subscription.service.condition.CompiledConditionCache;
+import eu.europa.ec.fisheries.uvms.subscription.service.condition.ConditionCompiler;
+import eu.europa.ec.fisheries.uvms.subscription.service.condition.ConditionLeaf;
+import eu.europa.ec.fisheries.uvms.subscription.service.condition.ConditionNode;
+import eu.europa.ec.fisheries.uvms.subscription.service.condition.ConditionPredicate;
+import eu.europa.ec.fisheries.uvms.subscription.service.condition.PredicateNetwork;
+import eu.europa.ec.fisheries.uvms.subscription.service.condition.PredicateResults;
+import eu.europa.ec.fisheries.uvms.subscription.service.domain.CompositeType;
+import eu.europa.ec.fisheries.uvms.subscription.service.domain.ConditionEntity;
+import eu.europa.ec.fisheries.uvms.subscription.service.domain.ConditionType;
+import eu.europa.ec.fisheries.uvms.subscription.service.domain.RelationalOperatorType;
+import eu.europa.ec.fisheries.wsdl.subscription.module.SubCriteriaType;
+import eu.europa.ec.fisheries.wsdl.subscription.module.SubscriptionDataCriteria;
+import org.junit.Test;
+
+public class ConditionCompilerTest {
+
+    private PredicateNetwork network = new PredicateNetwork();
+
+    @Test
+    public void testEmptyConditionsAlwaysMatch(){
+        assertSame(ConditionNode.ALWAYS, ConditionCompiler.compile(ConditionType.START, Collections.<ConditionEntity>emptyList(), network));
+    }
+
+    @Test
+    public void testAndBindsTighterThanOr(){
+        // ownerParty == "BEL" || ownerParty == "FRA" && channel == "1"
+        List<ConditionEntity> conditions = Arrays.asList(
+                condition(3, null, SubCriteriaType.CHANNEL, RelationalOperatorType.EQ, "1", null, CompositeType.NONE),
+                condition(1, null, SubCriteriaType.OWNER_PARTY, RelationalOperatorType.EQ, "BEL", null, CompositeType.OR),
+                condition(2, null, SubCriteriaType.OWNER_PARTY, RelationalOperatorType.EQ, "FRA", null, CompositeType.AND));
+        ConditionNode node = ConditionCompiler.compile(ConditionType.START, conditions, network);
+
+        assertTrue(node.evaluate(network.evaluate(criteria(SubCriteriaType.OWNER_PARTY, "BEL"))));
+        assertFalse(node.evaluate(network.evaluate(criteria(SubCriteriaType.OWNER_PARTY, "FRA"))));
+        assertTrue(node.evaluate(network.evaluate(criteria(SubCriteriaType.OWNER_PARTY, "FRA", SubCriteriaType.CHANNEL, "1"))));
+    }
+
+    @Test
+    public void testParenthesesAndOperators(){
+        // (ownerParty == "BEL" || ownerParty == "FRA") && vessel != "X"
+        List<ConditionEntity> conditions = Arrays.asList(
+                condition(1, "(", SubCriteriaType.OWNER_PARTY, RelationalOperatorType.EQ, "BEL", null, CompositeType.OR),
+                condition(2, null, SubCriteriaType.OWNER_PARTY, RelationalOperatorType.EQ, "FRA", ")", CompositeType.AND),
+                condition(3, null, SubCriteriaType.VESSEL, RelationalOperatorType.NE, "X", null, CompositeType.NONE));
+        ConditionNode node = ConditionCompiler.compile(ConditionType.START, conditions, network);
+
+        assertTrue(node.evaluate(network.evaluate(criteria(SubCriteriaType.OWNER_PARTY, "FRA"))));
+        assertFalse(node.evaluate(network.evaluate(criteria(SubCriteriaType.OWNER_PARTY, "FRA", SubCriteriaType.VESSEL, "X"))));
+        assertFalse(node.evaluate(network.evaluate(criteria(SubCriteriaType.OWNER_PARTY, "DEU"))));
+    }
+
+    @Test
+    public void testNumericComparison(){
+        ConditionNode node = ConditionCompiler.compile(ConditionType.START, Collections.singletonList(
+                condition(1, null, SubCriteriaType.VESSEL, RelationalOperatorType.GT, "9", null, CompositeType.NONE)), network);
+
+        assertTrue(node.evaluate(network.evaluate(criteria(SubCriteriaType.VESSEL, "10"))));
+        assertFalse(node.evaluate(network.evaluate(criteria(SubCriteriaType.VESSEL, "009"))));
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void testUnbalancedParentheses(){
+        ConditionCompiler.compile(ConditionType.START, Collections.singletonList(
+                condition(1, "((", SubCriteriaType.VESSEL, RelationalOperatorType.EQ, "X", ")", CompositeType.NONE)), network);
+    }
+
+    @Test
+    public void testCacheIsKeyedOnVersion(){
+        CompiledConditionCache cache = new CompiledConditionCache(network);
+        List<ConditionEntity> conditions = Collections.singletonList(
+                condition(1, null, SubCriteriaType.VESSEL, RelationalOperatorType.EQ, "X", null, CompositeType.NONE));
+
+        ConditionNode first = cache.get(1L, 1L, conditions);
+        assertSame(first, cache.get(1L, 1L, conditions));
+        assertFalse(first == cache.get(1L, 2L, conditions));
+    }
+
+    @Test
+    public void testIdenticalPredicatesShareSlotAndAreEvaluatedOnce(){
+        ConditionNode first = ConditionCompiler.compile(ConditionType.START, Collections.singletonList(
+                condition(1, null, SubCriteriaType.VESSEL, RelationalOperatorType.EQ, "X", null, CompositeType.NONE)), network);
+        ConditionNode second = ConditionCompiler.compile(ConditionType.START, Arrays.asList(
+                condition(1, null, SubCriteriaType.VESSEL, RelationalOperatorType.EQ, "X", null, CompositeType.AND),
+                condition(2, null, SubCriteriaType.OWNER_PARTY, RelationalOperatorType.EQ, "BEL", null, CompositeType.NONE)), network);
+
+        assertEquals(2, network.size());
+        assertEquals(((ConditionLeaf) first).getSlot(), network.leaf(new ConditionPredicate(null, SubCriteriaType.VESSEL, RelationalOperatorType.EQ, "X")).getSlot());
+
+        PredicateResults results = network.evaluate(criteria(SubCriteriaType.VESSEL, "X", SubCriteriaType.OWNER_PARTY, "BEL"));
+        assertTrue(first.evaluate(results));
+        assertTrue(second.evaluate(results));
+        assertEquals(2, results.getEvaluated());
+    }
+
+    @Test
+    public void testSlotsSurviveGrowthOfTheNetwork(){
+        ConditionLeaf first = network.leaf(new ConditionPredicate(null, SubCriteriaType.VESSEL, RelationalOperatorType.EQ, "0"));
+        PredicateResults results = network.evaluate(criteria(SubCriteriaType.VESSEL, "100"));
+        assertFalse(first.evaluate(results));
+
+        ConditionLeaf last = null;
+        for (int i = 1; i <= 100; i++) {
+            last = network.leaf(new ConditionPredicate(null, SubCriteriaType.VESSEL, RelationalOperatorType.EQ, String.valueOf(i)));
+        }
+
+        assertEquals(101, network.size());
+        assertEquals(100, last.getSlot());
+        assertTrue(last.evaluate(results));
+        assertFalse(first.evaluate(results));
+        assertEquals(2, results.getEvaluated());
+    }
+
+    @Test
+    public void testResetCompilesAgainstTheNewNetwork(){
+        CompiledConditionCache cache = new CompiledConditionCache(network);
+        List<ConditionEntity> conditions = Collections.singletonList(
+                condition(1, null, SubCriteriaType.VESSEL, RelationalOperatorType.EQ, "X", null, CompositeType.NONE));
+        ConditionNode first = cache.get(1L, 1L, conditions);
+        cache.get(2L, 1L, Collections.singletonList(
+                condition(1, null, SubCriteriaType.VESSEL, RelationalOperatorType.EQ, "Y", null, CompositeType.NONE)));
+        assertEquals(2, network.size());
+
+        PredicateNetwork fresh = new PredicateNetwork();
+        cache.reset(fresh);
+        ConditionNode recompiled = cache.get(1L, 1L, conditions);
+
+        assertFalse(first == recompiled);
+        assertEquals(1, cache.size());
+        assertEquals(1, fresh.size());
+        assertTrue(recompiled.evaluate(fresh.evaluate(criteria(SubCriteriaType.VESSEL, "X"))));
+    }
+
+    private static ConditionEntity condition(int position, String startOperator, SubCriteriaType subCriteriaType, RelationalOperatorType operator,
+                                             String value, String endOperator, CompositeType compositeType){
+        ConditionEntity condition = new ConditionEntity();
+        condition.setConditionType(ConditionType.START);
+        condition.setPosition(position);
+        condition.setStartOperator(startOperator);
+        condition.setSubCriteriaType(subCriteriaType);
+        condition.setCondition(operator);
+        condition.setValue(value);
+        condition.setEndOperator(endOperator);
+        condition.setCompositeType(compositeType);
+        return condition;
+    }
+
+    private static List<SubscriptionDataCriteria> criteria(Object... subCriteriaAndValues){
+        List<SubscriptionDataCriteria> criteria = new ArrayList<>();
+        for (int i = 0; i < subCriteriaAndValues.length; i += 2) {
+            SubscriptionDataCriteria criterion = new SubscriptionDataCriteria();
+            criterion.setSubCriteria((SubCriteriaType) subCriteriaAndValues[i]);
+            criterion.setValue((String) subCriteriaAndValues[i + 1]);
+            criteria.add(criterion);
+        }
+        return criteria;
+    }
+}
@@ -0,0 +1,44 @@
+/*
+ Developed by the European Commission - Directorate General for Maritime Affairs and Fisheries @ European Union, 2015-2016.
+
+ This file is part of the Integrated Fisheries Data Management (IFDM) Suite. The IFDM Suite is free software: you can redistribute it
+ and/or modify it under the terms of the GNU General Public License as published by the Free Software Foundation, either version 3 of
+ the License, or any later version. The IFDM Suite is distributed in the hope that it will be useful, but WITHOUT ANY WARRANTY;
+ without even the implied warranty of MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU General Public License for more
+ details. You should have received a copy of the GNU General Public License along with the IFDM Suite. If not, see <http://www.gnu.org/licenses/>.
+ */
+
+
+package eu.europe.ec.fisheries.uvms.subscription.dao;
+
+import static org.junit.Assert.assertEquals;
+
+import java.util.Date;
+
+import eu.europa.ec.fisheries.uvms.subscription.service.dao.SubscriptionCursor;
+import eu.europa.ec.fisheries.uvms.subscription.service.dto.ColumnType;
+import eu.europa.ec.fisheries.uvms.subscription.service.dto.DirectionType;
+import eu.europa.ec.fisheries.wsdl.subscription.module.MessageType;
+import org.junit.Test;
+
+public class SubscriptionCursorTest {
+
+    @Test
+    public void testEncodeDecode(){
+        SubscriptionCursor[] cursors = {
+                new SubscriptionCursor(ColumnType.NAME, DirectionType.ASC, "a|name with separator", 12L),
+                new SubscriptionCursor(ColumnType.START_DATE, DirectionType.DESC, new Date(1500000000000L), 3L),
+                new SubscriptionCursor(ColumnType.MESSAGE_TYPE, DirectionType.ASC, MessageType.FLUX_FA_QUERY_MESSAGE, 7L),
+                new SubscriptionCursor(ColumnType.ENABLED, DirectionType.DESC, true, 1L),
+                new SubscriptionCursor(ColumnType.SUB_ID, DirectionType.DESC, null, 9L)
+        };
+        for (SubscriptionCursor cursor : cursors) {
+            assertEquals(cursor, SubscriptionCursor.decode(cursor.encode()));
+        }
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void testDecodeInvalidCursor(){
+        SubscriptionCursor.decode("not a cursor");
+    }
+}
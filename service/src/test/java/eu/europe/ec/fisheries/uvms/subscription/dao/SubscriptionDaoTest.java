@@ -14,24 +14,35 @@ import static com.ninja_squad.dbsetup.Operations.sequenceOf;
 import static eu.europa.ec.fisheries.uvms.subscription.service.domain.SubscriptionEntity.random;
 import static junitparams.JUnitParamsRunner.$;
 import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
 import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
 
 import javax.persistence.EntityTransaction;
+import java.text.SimpleDateFormat;
 import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Date;
 import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
+import java.util.TimeZone;
 
 import com.fasterxml.jackson.databind.ObjectMapper;
 import com.ninja_squad.dbsetup.DbSetup;
 import com.ninja_squad.dbsetup.destination.DataSourceDestination;
 import com.ninja_squad.dbsetup.operation.Operation;
+import eu.europa.ec.fisheries.uvms.commons.date.DateUtils;
+import eu.europa.ec.fisheries.uvms.subscription.service.dao.SubscriptionCursor;
 import eu.europa.ec.fisheries.uvms.subscription.service.dao.SubscriptionDao;
 import eu.europa.ec.fisheries.uvms.subscription.service.domain.AreaEntity;
 import eu.europa.ec.fisheries.uvms.subscription.service.domain.SubscriptionEntity;
 import eu.europa.ec.fisheries.uvms.subscription.service.dto.ColumnType;
 import eu.europa.ec.fisheries.uvms.subscription.service.dto.DirectionType;
 import eu.europa.ec.fisheries.uvms.subscription.service.dto.QueryParameterDto;
+import eu.europa.ec.fisheries.uvms.subscription.service.dto.SubscriptionSummaryDto;
 import eu.europa.ec.fisheries.uvms.subscription.service.mapper.CustomMapper;
 import eu.europa.ec.fisheries.wsdl.subscription.module.AreaType;
 import eu.europa.ec.fisheries.wsdl.subscription.module.AreaValueType;
@@ -44,6 +55,7 @@ import eu.europe.ec.fisheries.uvms.subscription.helper.SubscriptionTestHelper;
 import junitparams.JUnitParamsRunner;
 import junitparams.Parameters;
 import lombok.SneakyThrows;
+import org.hibernate.ScrollableResults;
 import org.junit.Before;
 import org.junit.Test;
 import org.junit.runner.RunWith;
@@ -91,6 +103,215 @@ public class SubscriptionDaoTest extends BaseSubscriptionInMemoryTest {
         assertEquals(expected, subscriptionEntities.size());
     }
 
+    @Test
+    @Parameters(method = "queryParameters")
+    public void testCountSubscriptions(QueryParameterDto queryParameters, int expected){
+
+        Map<String, Object> map = objectMapper.convertValue(queryParameters, Map.class);
+        map.put("strict", false);
+        assertEquals(expected, daoUnderTest.countSubscriptions(map));
+    }
+
+    @Test
+    public void testListSubscriptionPagesFollowTheFullOrder(){
+
+        Map<ColumnType, DirectionType> orderBy = new HashMap<>();
+        orderBy.put(ColumnType.NAME, DirectionType.DESC);
+
+        List<Long> expected = new ArrayList<>();
+        for (SubscriptionEntity entity : daoUnderTest.listSubscriptions(listAll(), orderBy, -1, -1)) {
+            expected.add(entity.getId());
+        }
+
+        List<Long> paged = new ArrayList<>();
+        for (int firstResult = 0; firstResult < expected.size(); firstResult += 3) {
+            List<SubscriptionEntity> page = daoUnderTest.listSubscriptions(listAll(), orderBy, firstResult, 3);
+            for (SubscriptionEntity entity : page) {
+                assertNotNull(entity.getConditions());
+                paged.add(entity.getId());
+            }
+        }
+        assertEquals(expected, paged);
+        assertEquals(0, daoUnderTest.listSubscriptions(listAll(), orderBy, expected.size(), 3).size());
+    }
+
+    @Test
+    public void testListSubscriptionsAfterCursorFollowsTheFullOrder(){
+
+        Map<ColumnType, DirectionType> orderBy = new HashMap<>();
+        orderBy.put(ColumnType.NAME, DirectionType.DESC);
+
+        List<Long> expected = new ArrayList<>();
+        for (SubscriptionEntity entity : daoUnderTest.listSubscriptions(listAll(), orderBy, -1, -1)) {
+            expected.add(entity.getId());
+        }
+
+        List<Long> walked = new ArrayList<>();
+        SubscriptionCursor cursor = null;
+        List<SubscriptionEntity> page;
+        do {
+            page = daoUnderTest.listSubscriptionsAfter(listAll(), ColumnType.NAME, DirectionType.DESC, cursor, 3);
+            for (SubscriptionEntity entity : page) {
+                walked.add(entity.getId());
+                cursor = SubscriptionCursor.after(entity, ColumnType.NAME, DirectionType.DESC);
+            }
+        } while (!page.isEmpty());
+        assertEquals(expected, walked);
+    }
+
+    @Test
+    public void testListSubscriptionSummaryPagesFollowTheFullOrder(){
+
+        Map<ColumnType, DirectionType> orderBy = new HashMap<>();
+        orderBy.put(ColumnType.NAME, DirectionType.DESC);
+
+        List<SubscriptionEntity> expected = daoUnderTest.listSubscriptions(listAll(), orderBy, -1, -1);
+
+        List<SubscriptionSummaryDto> paged = new ArrayList<>();
+        for (int firstResult = 0; firstResult < expected.size(); firstResult += 3) {
+            paged.addAll(daoUnderTest.listSubscriptionSummaries(listAll(), orderBy, firstResult, 3));
+        }
+        assertEquals(expected.size(), paged.size());
+        for (int i = 0; i < expected.size(); i++) {
+            SubscriptionEntity entity = expected.get(i);
+            SubscriptionSummaryDto summary = paged.get(i);
+            assertEquals(entity.getId(), summary.getId());
+            assertEquals(entity.getName(), summary.getName());
+            assertEquals(entity.getGuid(), summary.getGuid());
+            assertEquals(entity.getChannel(), summary.getChannel());
+            assertEquals(entity.getMessageType(), summary.getMessageType());
+            assertEquals(entity.isEnabled(), summary.isEnabled());
+            assertEquals(entity.getValidityPeriod().getStartDate().getTime(), summary.getStartDate().getTime());
+        }
+    }
+
+    @Test
+    public void testListSubscriptionSummariesAfterCursorFollowsTheFullOrder(){
+
+        Map<ColumnType, DirectionType> orderBy = new HashMap<>();
+        orderBy.put(ColumnType.DESCRIPTION, DirectionType.ASC);
+
+        List<Long> expected = new ArrayList<>();
+        for (SubscriptionEntity entity : daoUnderTest.listSubscriptionsAfter(listAll(), ColumnType.DESCRIPTION, DirectionType.ASC, null, 100)) {
+            expected.add(entity.getId());
+        }
+
+        List<Long> walked = new ArrayList<>();
+        SubscriptionCursor cursor = null;
+        List<SubscriptionSummaryDto> page;
+        do {
+            page = daoUnderTest.listSubscriptionSummariesAfter(listAll(), ColumnType.DESCRIPTION, DirectionType.ASC, cursor, 3);
+            for (SubscriptionSummaryDto summary : page) {
+                walked.add(summary.getId());
+                cursor = SubscriptionCursor.after(summary, ColumnType.DESCRIPTION, DirectionType.ASC);
+            }
+        } while (!page.isEmpty());
+        assertEquals(expected, walked);
+    }
+
+    @Test
+    public void testScrollSubscriptionSummariesFollowsTheFullOrder(){
+
+        Map<ColumnType, DirectionType> orderBy = new HashMap<>();
+        orderBy.put(ColumnType.NAME, DirectionType.DESC);
+
+        List<Long> expected = new ArrayList<>();
+        for (SubscriptionEntity entity : daoUnderTest.listSubscriptions(listAll(), orderBy, -1, -1)) {
+            expected.add(entity.getId());
+        }
+
+        List<Long> scrolled = new ArrayList<>();
+        ScrollableResults results = daoUnderTest.scrollSubscriptionSummaries(listAll(), orderBy, 2);
+        try {
+            while (results.next()) {
+                scrolled.add(((SubscriptionSummaryDto) results.get(0)).getId());
+            }
+        } finally {
+            results.close();
+        }
+        assertEquals(expected, scrolled);
+    }
+
+    @Test
+    public void testFindSubscriptionDetails(){
+        SubscriptionEntity listed = daoUnderTest.listSubscriptions(listAll(), new HashMap<ColumnType, DirectionType>(), 0, 1).get(0);
+
+        SubscriptionEntity details = daoUnderTest.findSubscriptionDetails(listed.getId());
+        assertEquals(listed.getName(), details.getName());
+        assertEquals(listed.getConditions().size(), details.getConditions().size());
+        assertEquals(listed.getAreas().size(), details.getAreas().size());
+
+        assertNull(daoUnderTest.findSubscriptionDetails(-1L));
+    }
+
+    @Test
+    @Parameters(method = "filters")
+    public void testListFilter(Map<String, Object> filter, int expected){
+        assertEquals(expected, daoUnderTest.listSubscriptions(filter, new HashMap<ColumnType, DirectionType>(), -1, -1).size());
+        assertEquals(expected, daoUnderTest.countSubscriptions(filter));
+    }
+
+    protected Object[] filters(){
+        Date date = DateUtils.nowUTC().toDate();
+        SimpleDateFormat format = new SimpleDateFormat(DateUtils.DATE_TIME_UI_FORMAT);
+        format.setTimeZone(TimeZone.getTimeZone("UTC"));
+        return $(
+                // ids: equality when strict, given as Long, Integer or String
+                $(filter(true, "organisation", 2L), 1),
+                $(filter(true, "organisation", 3), 1),
+                $(filter(true, "endPoint", "4"), 1),
+                $(filter(true, "channel", 1), 4),
+                // ids: substring of the value otherwise
+                $(filter(false, "organisation", 2), 1),
+                $(filter(false, "endPoint", "2"), 3),
+                $(filter(false, "channel", 5), 0),
+                // message type: enumeration value when strict, any case
+                $(filter(true, "messageType", MessageType.UNKNOWN), 3),
+                $(filter(true, "messageType", "flux_fa_query_message"), 1),
+                // message type: case insensitive substring otherwise
+                $(filter(false, "messageType", "fa_query"), 1),
+                $(filter(false, "messageType", MessageType.UNKNOWN), 3),
+                // other enumerations and the enabled flag, from their Jackson representation
+                $(filter(false, "subscriptionType", "unknown"), 4),
+                $(filter(true, "accessibility", "UNKNOWN"), 4),
+                $(filter(false, "enabled", "false"), 1),
+                $(filter(true, "enabled", true), 3),
+                // validity period, as a Date, milliseconds or the UI format
+                $(filter(false, "startDate", date), 4),
+                $(filter(false, "endDate", date.getTime()), 4),
+                $(filter(true, "startDate", format.format(date), "endDate", format.format(date)), 4),
+                // several parameters
+                $(filter(true, "organisation", 2, "messageType", "UNKNOWN", "enabled", true), 1),
+                $(filter(false, "name", "SUBSCRIPTION", "endPoint", 2), 2)
+        );
+    }
+
+    @Test
+    public void testQueryShapesShareTheCache(){
+        // same parameter in strict and in substring mode: two shapes, each with its own where clause
+        assertEquals(3, daoUnderTest.countSubscriptions(filter(true, "messageType", "UNKNOWN")));
+        assertEquals(1, daoUnderTest.countSubscriptions(filter(false, "messageType", "QUERY")));
+        // the cached clauses are reused with other values
+        assertEquals(1, daoUnderTest.countSubscriptions(filter(true, "messageType", "FLUX_FA_QUERY_MESSAGE")));
+        assertEquals(3, daoUnderTest.countSubscriptions(filter(false, "messageType", "KNOWN")));
+        assertEquals(0, daoUnderTest.countSubscriptions(filter(true, "messageType", "FLUX_SALES_MESSAGE")));
+    }
+
+    private static Map<String, Object> filter(boolean strict, Object... parameters) {
+        Map<String, Object> map = new HashMap<>();
+        map.put("strict", strict);
+        for (int i = 0; i < parameters.length; i += 2) {
+            map.put((String) parameters[i], parameters[i + 1]);
+        }
+        return map;
+    }
+
+    private Map<String, Object> listAll() {
+        Map<String, Object> map = objectMapper.convertValue(QueryParameterDto.builder().build(), Map.class);
+        map.put("strict", false);
+        return map;
+    }
+
     protected Object[] queryParameters(){
         return $(
                 $(QueryParameterDto.builder().channel(new Long(1)).build(), 4),
@@ -100,7 +321,9 @@ public class SubscriptionDaoTest extends BaseSubscriptionInMemoryTest {
                 $(QueryParameterDto.builder().messageType(MessageType.FLUX_FA_QUERY_MESSAGE).organisation(new Long(1)).build(), 1),
                 $(QueryParameterDto.builder().enabled(true).build(), 3),
                 $(QueryParameterDto.builder().channel(new Long(1)).organisation(new Long(1)).name("subscription4").build(), 0),
-                $(QueryParameterDto.builder().name("sub").enabled(true).build(), 2)
+                $(QueryParameterDto.builder().name("sub").enabled(true).build(), 2),
+                $(QueryParameterDto.builder().search("SUBSCRIPTION").build(), 3),
+                $(QueryParameterDto.builder().search("Name1").build(), 1)
         );
     }
 
@@ -126,6 +349,108 @@ public class SubscriptionDaoTest extends BaseSubscriptionInMemoryTest {
         assertEquals(subscription, entityById);
     }
 
+    @Test
+    public void testFindByGuid(){
+        SubscriptionEntity subscription = daoUnderTest.findByGuid("1dcc7037-bcf2-4e34-be01-c868beecf87a");
+        assertEquals("name1", subscription.getName());
+        assertEquals(3, subscription.getAreas().size());
+
+        assertNull(daoUnderTest.findByGuid("00000000-0000-0000-0000-000000000000"));
+    }
+
+    @Test
+    public void testFindByGuids(){
+        List<SubscriptionEntity> subscriptions = daoUnderTest.findByGuids(Arrays.asList(
+                "0dbe00af-a300-4cea-b1d7-1e6826ff8826", "14f7dc3c-813e-45d5-8470-3e38192ea5f9", "00000000-0000-0000-0000-000000000000"));
+        assertEquals(2, subscriptions.size());
+
+        assertEquals(0, daoUnderTest.findByGuids(Collections.<String>emptyList()).size());
+    }
+
+    @Test
+    @SneakyThrows
+    public void testUpdateState(){
+        EntityTransaction tx = em.getTransaction();
+        tx.begin();
+
+        Date startDate = new Date(1000000000000L);
+        Date endDate = new Date(2000000000000L);
+        assertTrue(daoUnderTest.updateState(1L, 0L, false, startDate, endDate));
+        em.clear();
+
+        SubscriptionEntity subscription = daoUnderTest.findEntityById(SubscriptionEntity.class, 1L);
+        assertFalse(subscription.isEnabled());
+        assertEquals(startDate.getTime(), subscription.getValidityPeriod().getStartDate().getTime());
+        assertEquals(endDate.getTime(), subscription.getValidityPeriod().getEndDate().getTime());
+        assertEquals(Long.valueOf(1L), subscription.getVersion());
+
+        tx.rollback();
+    }
+
+    @Test
+    @SneakyThrows
+    public void testUpdateStateWithStaleVersion(){
+        EntityTransaction tx = em.getTransaction();
+        tx.begin();
+
+        assertTrue(daoUnderTest.updateState(1L, 0L, false, new Date(), new Date()));
+        assertFalse(daoUnderTest.updateState(1L, 0L, true, new Date(), new Date()));
+        assertFalse(daoUnderTest.updateState(999L, 0L, true, new Date(), new Date()));
+        em.clear();
+
+        assertFalse(daoUnderTest.findEntityById(SubscriptionEntity.class, 1L).isEnabled());
+
+        tx.rollback();
+    }
+
+    @Test
+    public void testGuidIsKeptOnUpdate(){
+        EntityTransaction tx = em.getTransaction();
+        tx.begin();
+
+        SubscriptionEntity subscription = random();
+        daoUnderTest.persistAll(Collections.singletonList(subscription), 1);
+        String guid = subscription.getGuid();
+        assertNotNull(guid);
+
+        SubscriptionEntity managed = daoUnderTest.findByGuid(guid);
+        managed.setDescription("updated");
+        daoUnderTest.flush();
+        em.clear();
+
+        assertEquals("updated", daoUnderTest.findByGuid(guid).getDescription());
+
+        tx.rollback();
+    }
+
+    @Test
+    public void testPersistAllAndRemoveAllInBatches(){
+        EntityTransaction tx = em.getTransaction();
+        tx.begin();
+
+        List<SubscriptionEntity> created = new ArrayList<>();
+        for (int i = 0; i < 7; i++) {
+            created.add(random());
+        }
+        daoUnderTest.persistAll(created, 3);
+
+        List<Long> ids = new ArrayList<>();
+        for (SubscriptionEntity entity : created) {
+            assertNotNull(entity.getId());
+            ids.add(entity.getId());
+        }
+        Map<Long, SubscriptionEntity> found = daoUnderTest.findSubscriptionsById(ids);
+        assertEquals(7, found.size());
+
+        Map<String, Long> byName = daoUnderTest.findIdsByName(Collections.singletonList(created.get(0).getName()));
+        assertEquals(created.get(0).getId(), byName.get(created.get(0).getName()));
+
+        daoUnderTest.removeAll(found.values(), 3);
+        assertEquals(0, daoUnderTest.findSubscriptionsById(ids).size());
+
+        tx.rollback();
+    }
+
     @Test
     @SneakyThrows
     public void testAddAreaToSubscription(){
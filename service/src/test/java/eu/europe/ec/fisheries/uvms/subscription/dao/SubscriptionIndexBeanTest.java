@@ -0,0 +1,157 @@
+/*
+ Developed by the European Commission - Directorate General for Maritime Affairs and Fisheries @ European Union, 2015-2016.
+
+ This file is part of the Integrated Fisheries Data Management (IFDM) Suite. The IFDM Suite is free software: you can redistribute it
+ and/or modify it under the terms of the GNU General Public License as published by the Free Software Foundation, either version 3 of
+ the License, or any later version. The IFDM Suite is distributed in the hope that it will be useful, but WITHOUT ANY WARRANTY;
+ without even the implied warranty of MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU General Public License for more
+ details. You should have received a copy of the GNU General Public License along with the IFDM Suite. If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package eu.europe.ec.fisheries.uvms.subscription.dao;
+
+import static com.ninja_squad.dbsetup.Operations.sequenceOf;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNotSame;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+
+import javax.persistence.EntityTransaction;
+import javax.transaction.Status;
+import javax.transaction.Synchronization;
+import javax.transaction.TransactionSynchronizationRegistry;
+import java.lang.reflect.Field;
+import java.util.Date;
+
+import com.ninja_squad.dbsetup.DbSetup;
+import com.ninja_squad.dbsetup.destination.DataSourceDestination;
+import eu.europa.ec.fisheries.uvms.commons.date.DateUtils;
+import eu.europa.ec.fisheries.uvms.subscription.service.bean.BaseSubscriptionBean;
+import eu.europa.ec.fisheries.uvms.subscription.service.bean.SubscriptionIndexBean;
+import eu.europa.ec.fisheries.uvms.subscription.service.condition.ConditionNode;
+import eu.europa.ec.fisheries.uvms.subscription.service.dao.SubscriptionDao;
+import eu.europa.ec.fisheries.uvms.subscription.service.domain.SubscriptionEntity;
+import eu.europa.ec.fisheries.uvms.subscription.service.index.IndexedSubscription;
+import eu.europa.ec.fisheries.uvms.subscription.service.index.PermissionQuery;
+import eu.europa.ec.fisheries.uvms.subscription.service.index.SubscriptionIndex;
+import eu.europa.ec.fisheries.wsdl.subscription.module.MessageType;
+import lombok.SneakyThrows;
+import org.junit.Before;
+import org.junit.Test;
+
+public class SubscriptionIndexBeanTest extends BaseSubscriptionInMemoryTest {
+
+    /**
+     * Outside of a container there is no JTA transaction, changes are applied to the index immediately.
+     */
+    private static final TransactionSynchronizationRegistry NO_TRANSACTION = new TransactionSynchronizationRegistry() {
+        @Override
+        public Object getTransactionKey() {
+            return null;
+        }
+
+        @Override
+        public void putResource(Object key, Object value) {
+            throw new IllegalStateException();
+        }
+
+        @Override
+        public Object getResource(Object key) {
+            return null;
+        }
+
+        @Override
+        public void registerInterposedSynchronization(Synchronization sync) {
+            throw new IllegalStateException();
+        }
+
+        @Override
+        public int getTransactionStatus() {
+            return Status.STATUS_NO_TRANSACTION;
+        }
+
+        @Override
+        public void setRollbackOnly() {
+            throw new IllegalStateException();
+        }
+
+        @Override
+        public boolean getRollbackOnly() {
+            return false;
+        }
+    };
+
+    private SubscriptionIndexBean indexBean = new SubscriptionIndexBean();
+
+    @Before
+    public void prepare(){
+        new DbSetup(new DataSourceDestination(ds), sequenceOf(DELETE_ALL, INSERT_SUBSCRIPTION, INSERT_CONDITION, INSERT_AREA)).launch();
+        inject(BaseSubscriptionBean.class, "postgres", em);
+        inject(SubscriptionIndexBean.class, "transactionRegistry", NO_TRANSACTION);
+        indexBean.init();
+    }
+
+    @Test
+    public void testEnablingASubscriptionDisabledAtStartup(){
+        PermissionQuery query = PermissionQuery.builder().messageType(MessageType.UNKNOWN).organisation(4L).build();
+        assertFalse(indexBean.hasActiveSubscription(query));
+
+        Date startDate = DateUtils.START_OF_TIME.toDate();
+        Date endDate = DateUtils.END_OF_TIME.toDate();
+        EntityTransaction tx = em.getTransaction();
+        tx.begin();
+        assertTrue(new SubscriptionDao(em).updateState(4L, 0L, true, startDate, endDate));
+        indexBean.subscriptionStateChanged(4L, true, startDate, endDate);
+        tx.commit();
+
+        assertTrue(indexBean.hasActiveSubscription(query));
+    }
+
+    @Test
+    public void testDisablingASubscription(){
+        PermissionQuery query = PermissionQuery.builder().messageType(MessageType.UNKNOWN).organisation(2L).build();
+        assertTrue(indexBean.hasActiveSubscription(query));
+
+        Date startDate = DateUtils.START_OF_TIME.toDate();
+        Date endDate = DateUtils.END_OF_TIME.toDate();
+        EntityTransaction tx = em.getTransaction();
+        tx.begin();
+        assertTrue(new SubscriptionDao(em).updateState(2L, 0L, false, startDate, endDate));
+        indexBean.subscriptionStateChanged(2L, false, startDate, endDate);
+        tx.commit();
+
+        assertFalse(indexBean.hasActiveSubscription(query));
+    }
+
+    @Test
+    public void testSavingAnUnchangedSubscriptionReusesTheCompiledConditions(){
+        ConditionNode loaded = indexed(1L).getStartCondition();
+        SubscriptionEntity entity = em.find(SubscriptionEntity.class, 1L);
+
+        indexBean.subscriptionSaved(entity);
+        indexBean.subscriptionSaved(entity);
+        assertSame(loaded, indexed(1L).getStartCondition());
+
+        EntityTransaction tx = em.getTransaction();
+        tx.begin();
+        entity.setName("renamed");
+        em.flush();
+        tx.commit();
+        indexBean.subscriptionSaved(entity);
+        assertNotSame(loaded, indexed(1L).getStartCondition());
+    }
+
+    @SneakyThrows
+    private IndexedSubscription indexed(Long id) {
+        Field field = SubscriptionIndexBean.class.getDeclaredField("index");
+        field.setAccessible(true);
+        return ((SubscriptionIndex) field.get(indexBean)).get(id);
+    }
+
+    @SneakyThrows
+    private void inject(Class<?> owner, String name, Object value) {
+        Field field = owner.getDeclaredField(name);
+        field.setAccessible(true);
+        field.set(indexBean, value);
+    }
+}
@@ -0,0 +1,85 @@
+/*
+ Developed by the European Commission - Directorate General for Maritime Affairs and Fisheries @ European Union, 2015-2016.
+
+ This file is part of the Integrated Fisheries Data Management (IFDM) Suite. The IFDM Suite is free software: you can redistribute it
+ and/or modify it under the terms of the GNU General Public License as published by the Free Software Foundation, either version 3 of
+ the License, or any later version. The IFDM Suite is distributed in the hope that it will be useful, but WITHOUT ANY WARRANTY;
+ without even the implied warranty of MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU General Public License for more
+ details. You should have received a copy of the GNU General Public License along with the IFDM Suite. If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package eu.europe.ec.fisheries.uvms.subscription.export;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import java.io.ByteArrayOutputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.Date;
+
+import eu.europa.ec.fisheries.uvms.subscription.service.domain.StateType;
+import eu.europa.ec.fisheries.uvms.subscription.service.domain.SubscriptionType;
+import eu.europa.ec.fisheries.uvms.subscription.service.domain.TriggerType;
+import eu.europa.ec.fisheries.uvms.subscription.service.dto.SubscriptionExportFormat;
+import eu.europa.ec.fisheries.uvms.subscription.service.dto.SubscriptionSummaryDto;
+import eu.europa.ec.fisheries.uvms.subscription.service.export.SubscriptionExportWriter;
+import eu.europa.ec.fisheries.wsdl.subscription.module.MessageType;
+import org.junit.Test;
+
+public class SubscriptionExportWriterTest {
+
+    @Test
+    public void testNdjsonWritesOneObjectPerLine() throws Exception {
+        String exported = export(SubscriptionExportFormat.NDJSON, summary(1L, "first"), summary(2L, "second"));
+
+        String[] lines = exported.split("\n");
+        assertEquals(2, lines.length);
+        assertTrue(lines[0].contains("\"id\":1,"));
+        assertTrue(lines[0].contains("\"name\":\"first\""));
+        assertTrue(lines[0].contains("\"isActive\":true"));
+        assertTrue(lines[1].contains("\"name\":\"second\""));
+        assertTrue(exported.endsWith("}\n"));
+    }
+
+    @Test
+    public void testCsvQuotesSeparatorsAndQuotes() throws Exception {
+        SubscriptionSummaryDto summary = summary(1L, "first");
+        summary.setDescription("a, \"quoted\" description");
+        summary.setOrganisationName("ORG1 NAME");
+
+        String[] lines = export(SubscriptionExportFormat.CSV, summary).split("\r\n");
+
+        assertEquals(2, lines.length);
+        assertTrue(lines[0].startsWith("id,name,guid,description,organisation,organisationName,"));
+        assertTrue(lines[1].startsWith("1,first,guid-1,\"a, \"\"quoted\"\" description\",1,ORG1 NAME,24,,1,,FLUX_FA_QUERY_MESSAGE,TX_PULL,true,"));
+        assertTrue(lines[1].endsWith(",AUTO,UNKNOWN"));
+    }
+
+    @Test
+    public void testFormatParameter() {
+        assertEquals(SubscriptionExportFormat.NDJSON, SubscriptionExportFormat.fromParameter(null));
+        assertEquals(SubscriptionExportFormat.NDJSON, SubscriptionExportFormat.fromParameter(" "));
+        assertEquals(SubscriptionExportFormat.CSV, SubscriptionExportFormat.fromParameter("csv"));
+        assertEquals(SubscriptionExportFormat.NDJSON, SubscriptionExportFormat.fromParameter("NdJson"));
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void testUnsupportedFormatParameter() {
+        SubscriptionExportFormat.fromParameter("xml");
+    }
+
+    private static String export(SubscriptionExportFormat format, SubscriptionSummaryDto... summaries) throws Exception {
+        ByteArrayOutputStream output = new ByteArrayOutputStream();
+        try (SubscriptionExportWriter writer = SubscriptionExportWriter.of(format, output)) {
+            for (SubscriptionSummaryDto summary : summaries) {
+                writer.write(summary);
+            }
+        }
+        return new String(output.toByteArray(), StandardCharsets.UTF_8);
+    }
+
+    private static SubscriptionSummaryDto summary(Long id, String name) {
+        return new SubscriptionSummaryDto(id, name, "guid-" + id, null, 1L, 24L, 1L, MessageType.FLUX_FA_QUERY_MESSAGE,
+                SubscriptionType.TX_PULL, true, new Date(0), new Date(86400000L), TriggerType.AUTO, StateType.UNKNOWN);
+    }
+}
@@ -0,0 +1,162 @@
+/*
+ Developed by the European Commission - Directorate General for Maritime Affairs and Fisheries @ European Union, 2015-2016.
+
+ This file is part of the Integrated Fisheries Data Management (IFDM) Suite. The IFDM Suite is free software: you can redistribute it
+ and/or modify it under the terms of the GNU General Public License as published by the Free Software Foundation, either version 3 of
+ the License, or any later version. The IFDM Suite is distributed in the hope that it will be useful, but WITHOUT ANY WARRANTY;
+ without even the implied warranty of MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU General Public License for more
+ details. You should have received a copy of the GNU General Public License along with the IFDM Suite. If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package eu.europe.ec.fisheries.uvms.subscription.index;
+
+import static eu.europa.ec.fisheries.wsdl.subscription.module.MessageType.FLUX_FA_REPORT_MESSAGE;
+import static eu.europa.ec.fisheries.wsdl.subscription.module.MessageType.FLUX_SALES_MESSAGE;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import eu.europa.ec.fisheries.uvms.subscription.service.condition.ConditionNode;
+import eu.europa.ec.fisheries.uvms.subscription.service.condition.PredicateNetwork;
+import eu.europa.ec.fisheries.uvms.subscription.service.domain.AccessibilityType;
+import eu.europa.ec.fisheries.uvms.subscription.service.domain.SubscriptionType;
+import eu.europa.ec.fisheries.uvms.subscription.service.index.IndexedSubscription;
+import eu.europa.ec.fisheries.uvms.subscription.service.index.PermissionQuery;
+import eu.europa.ec.fisheries.uvms.subscription.service.index.SubscriptionIndex;
+import eu.europa.ec.fisheries.wsdl.subscription.module.MessageType;
+import org.junit.Before;
+import org.junit.Test;
+
+public class SubscriptionIndexTest {
+
+    private static final long NOW = 1000L;
+
+    private SubscriptionIndex index = new SubscriptionIndex(new PredicateNetwork());
+
+    @Before
+    public void before(){
+        index.rebuild(Arrays.asList(
+                subscription(1L, 1L, FLUX_FA_REPORT_MESSAGE, true, 0L, 2000L),
+                subscription(2L, 2L, FLUX_FA_REPORT_MESSAGE, false, 0L, 2000L),
+                subscription(3L, 3L, FLUX_SALES_MESSAGE, true, 1500L, 2000L)
+        ));
+    }
+
+    @Test
+    public void testDisabledSubscriptionsNeverMatch(){
+        assertEquals(3, index.size());
+        assertFalse(index.hasMatch(query(FLUX_FA_REPORT_MESSAGE, 2L), NOW));
+    }
+
+    @Test
+    public void testMatchOnMessageTypeAndOrganisation(){
+        assertTrue(index.hasMatch(query(FLUX_FA_REPORT_MESSAGE, 1L), NOW));
+        assertTrue(index.hasMatch(query(FLUX_FA_REPORT_MESSAGE, null), NOW));
+        assertFalse(index.hasMatch(query(FLUX_SALES_MESSAGE, 1L), NOW));
+    }
+
+    @Test
+    public void testMatchOnValidityPeriod(){
+        assertFalse(index.hasMatch(query(FLUX_SALES_MESSAGE, 3L), NOW));
+        PermissionQuery overlapping = PermissionQuery.builder().messageType(FLUX_SALES_MESSAGE).organisation(3L).startDate(500L).endDate(1600L).build();
+        assertTrue(index.hasMatch(overlapping, NOW));
+    }
+
+    @Test
+    public void testBatchAnswersInQueryOrder(){
+        boolean[] answers = index.hasMatches(Arrays.asList(query(FLUX_FA_REPORT_MESSAGE, 1L), query(FLUX_SALES_MESSAGE, 1L),
+                query(FLUX_FA_REPORT_MESSAGE, null)), NOW);
+        assertTrue(answers[0]);
+        assertFalse(answers[1]);
+        assertTrue(answers[2]);
+    }
+
+    @Test
+    public void testPutAndRemove(){
+        index.put(subscription(2L, 2L, FLUX_FA_REPORT_MESSAGE, true, 0L, 2000L));
+        assertTrue(index.hasMatch(query(FLUX_FA_REPORT_MESSAGE, 2L), NOW));
+
+        index.put(subscription(1L, 1L, FLUX_SALES_MESSAGE, true, 0L, 2000L));
+        assertFalse(index.hasMatch(query(FLUX_FA_REPORT_MESSAGE, 1L), NOW));
+        assertTrue(index.hasMatch(query(FLUX_SALES_MESSAGE, 1L), NOW));
+
+        index.remove(1L);
+        assertFalse(index.hasMatch(query(FLUX_SALES_MESSAGE, 1L), NOW));
+        assertEquals(2, index.size());
+    }
+
+    @Test
+    public void testPutAllAndRemoveAll(){
+        List<IndexedSubscription> replaced = index.putAll(Arrays.asList(
+                subscription(1L, 1L, FLUX_SALES_MESSAGE, true, 0L, 2000L),
+                subscription(4L, 4L, FLUX_FA_REPORT_MESSAGE, true, 0L, 2000L),
+                subscription(5L, 5L, FLUX_FA_REPORT_MESSAGE, true, 3000L, 4000L)));
+        assertEquals(1, replaced.size());
+        assertEquals(FLUX_FA_REPORT_MESSAGE, replaced.get(0).getMessageType());
+        assertEquals(5, index.size());
+        assertTrue(index.hasMatch(query(FLUX_SALES_MESSAGE, 1L), NOW));
+        assertTrue(index.hasMatch(query(FLUX_FA_REPORT_MESSAGE, 4L), NOW));
+        assertTrue(index.hasMatch(query(FLUX_FA_REPORT_MESSAGE, 5L), 3500L));
+        assertFalse(index.hasMatch(query(FLUX_FA_REPORT_MESSAGE, 5L), NOW));
+
+        List<IndexedSubscription> removed = index.removeAll(Arrays.asList(1L, 5L, 6L));
+        assertEquals(2, removed.size());
+        assertEquals(3, index.size());
+        assertFalse(index.hasMatch(query(FLUX_SALES_MESSAGE, 1L), NOW));
+        assertFalse(index.hasMatch(query(FLUX_FA_REPORT_MESSAGE, 5L), 3500L));
+        assertTrue(index.hasMatch(query(FLUX_FA_REPORT_MESSAGE, 4L), NOW));
+    }
+
+    @Test
+    public void testRemovedOrdinalIsRecycled(){
+        index.remove(1L);
+        index.put(subscription(4L, 1L, FLUX_SALES_MESSAGE, true, 0L, 2000L));
+        assertFalse(index.hasMatch(query(FLUX_FA_REPORT_MESSAGE, 1L), NOW));
+        assertTrue(index.hasMatch(query(FLUX_SALES_MESSAGE, 1L), NOW));
+        assertEquals(3, index.size());
+    }
+
+    @Test
+    public void testMatchOnAccessibilityAndSubscriptionType(){
+        PermissionQuery pull = PermissionQuery.builder().messageType(FLUX_FA_REPORT_MESSAGE).subscriptionType(SubscriptionType.TX_PULL).build();
+        PermissionQuery push = PermissionQuery.builder().messageType(FLUX_FA_REPORT_MESSAGE).subscriptionType(SubscriptionType.TX_PUSH).build();
+        PermissionQuery publicAccess = PermissionQuery.builder().messageType(FLUX_FA_REPORT_MESSAGE).accessibility(AccessibilityType.PUBLIC).build();
+        assertTrue(index.hasMatch(pull, NOW));
+        assertFalse(index.hasMatch(push, NOW));
+        assertFalse(index.hasMatch(publicAccess, NOW));
+    }
+
+    @Test
+    public void testValidityIntervalsOnManySubscriptions(){
+        List<IndexedSubscription> subscriptions = new ArrayList<>();
+        for (long id = 1; id <= 500; id++) {
+            subscriptions.add(subscription(id, 1L, FLUX_FA_REPORT_MESSAGE, true, id * 10, id * 10 + (id % 7) * 100));
+        }
+        index.rebuild(subscriptions);
+
+        for (long instant = 0; instant <= 6000; instant += 45) {
+            int expected = 0;
+            for (IndexedSubscription subscription : subscriptions) {
+                if (subscription.isValidWithin(instant, instant + 30)) {
+                    expected++;
+                }
+            }
+            PermissionQuery period = PermissionQuery.builder().messageType(FLUX_FA_REPORT_MESSAGE).startDate(instant).endDate(instant + 30).build();
+            assertEquals(expected, index.findMatches(period, NOW).size());
+        }
+        assertTrue(index.hasMatch(query(FLUX_FA_REPORT_MESSAGE, 1L), 5000L));
+        assertFalse(index.hasMatch(query(FLUX_FA_REPORT_MESSAGE, 1L), 5L));
+    }
+
+    private static IndexedSubscription subscription(Long id, Long organisation, MessageType messageType, boolean enabled, long startDate, long endDate){
+        return new IndexedSubscription(id, organisation, messageType, 1L, 1L, AccessibilityType.PRIVATE, SubscriptionType.TX_PULL, enabled, startDate, endDate, ConditionNode.ALWAYS);
+    }
+
+    private static PermissionQuery query(MessageType messageType, Long organisation){
+        return PermissionQuery.builder().messageType(messageType).organisation(organisation).build();
+    }
+}
@@ -0,0 +1,98 @@
+/*
+ Developed by the European Commission - Directorate General for Maritime Affairs and Fisheries @ European Union, 2015-2016.
+
+ This file is part of the Integrated Fisheries Data Management (IFDM) Suite. The IFDM Suite is free software: you can redistribute it
+ and/or modify it under the terms of the GNU General Public License as published by the Free Software Foundation, either version 3 of
+ the License, or any later version. The IFDM Suite is distributed in the hope that it will be useful, but WITHOUT ANY WARRANTY;
+ without even the implied warranty of MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU General Public License for more
+ details. You should have received a copy of the GNU General Public License along with the IFDM Suite. If not, see <http://www.gnu.org/licenses/>.
+ */
+
+
+package eu.europe.ec.fisheries.uvms.subscription.mapper;
+
+import static eu.europa.ec.fisheries.uvms.subscription.service.mapper.OrganisationLookup.UNKNOWN;
+import static org.junit.Assert.assertEquals;
+
+import java.util.Arrays;
+import java.util.List;
+
+import eu.europa.ec.fisheries.uvms.subscription.service.domain.SubscriptionEntity;
+import eu.europa.ec.fisheries.uvms.subscription.service.mapper.CustomMapper;
+import eu.europa.ec.fisheries.wsdl.user.types.Channel;
+import eu.europa.ec.fisheries.wsdl.user.types.EndPoint;
+import eu.europa.ec.fisheries.wsdl.user.types.Organisation;
+import org.junit.Test;
+
+public class OrganisationLookupTest {
+
+    @Test
+    public void testEnrichmentWithIdsAboveTheBoxingCache(){
+        Organisation organisation = organisation(1000L, "PARENT", "ORG");
+        EndPoint endPoint = endPoint(2000L, "FLUX.BEL");
+        endPoint.getChannels().add(channel(3000L, "urn:un:unece:uncefact:fisheries:FLUX:FA:EU:2"));
+        organisation.getEndPoints().add(endPoint);
+
+        SubscriptionEntity subscription = subscription(1000L, 2000L, 3000L);
+        CustomMapper.enrichSubscriptionList(Arrays.asList(subscription), Arrays.asList(organisation));
+
+        assertEquals("PARENT / ORG", subscription.getOrganisationName());
+        assertEquals("FLUX.BEL", subscription.getEndpointName());
+        assertEquals("urn:un:unece:uncefact:fisheries:FLUX:FA:EU:2", subscription.getChannelName());
+    }
+
+    @Test
+    public void testEndPointsAreLookedUpWithinTheirOrganisation(){
+        Organisation first = organisation(1L, null, "FIRST");
+        first.getEndPoints().add(endPoint(10L, "FIRST.ENDPOINT"));
+        Organisation second = organisation(2L, "", "SECOND");
+        EndPoint endPoint = endPoint(20L, "SECOND.ENDPOINT");
+        endPoint.getChannels().add(channel(5L, "FLOW"));
+        second.getEndPoints().add(endPoint);
+
+        List<SubscriptionEntity> subscriptions = Arrays.asList(subscription(1L, 20L, 5L), subscription(2L, 20L, 6L), subscription(3L, 20L, 5L));
+        CustomMapper.enrichSubscriptionList(subscriptions, Arrays.asList(first, second));
+
+        assertEquals("FIRST", subscriptions.get(0).getOrganisationName());
+        assertEquals(UNKNOWN, subscriptions.get(0).getEndpointName());
+        assertEquals(UNKNOWN, subscriptions.get(0).getChannelName());
+
+        assertEquals("SECOND", subscriptions.get(1).getOrganisationName());
+        assertEquals("SECOND.ENDPOINT", subscriptions.get(1).getEndpointName());
+        assertEquals(UNKNOWN, subscriptions.get(1).getChannelName());
+
+        assertEquals(UNKNOWN, subscriptions.get(2).getOrganisationName());
+        assertEquals(UNKNOWN, subscriptions.get(2).getEndpointName());
+        assertEquals(UNKNOWN, subscriptions.get(2).getChannelName());
+    }
+
+    private static SubscriptionEntity subscription(Long organisation, Long endPoint, Long channel) {
+        SubscriptionEntity subscription = new SubscriptionEntity();
+        subscription.setOrganisation(organisation);
+        subscription.setEndPoint(endPoint);
+        subscription.setChannel(channel);
+        return subscription;
+    }
+
+    private static Organisation organisation(long id, String parent, String name) {
+        Organisation organisation = new Organisation();
+        organisation.setId(id);
+        organisation.setParentOrganisation(parent);
+        organisation.setName(name);
+        return organisation;
+    }
+
+    private static EndPoint endPoint(long id, String name) {
+        EndPoint endPoint = new EndPoint();
+        endPoint.setId(id);
+        endPoint.setName(name);
+        return endPoint;
+    }
+
+    private static Channel channel(long id, String dataFlow) {
+        Channel channel = new Channel();
+        channel.setId(id);
+        channel.setDataFlow(dataFlow);
+        return channel;
+    }
+}
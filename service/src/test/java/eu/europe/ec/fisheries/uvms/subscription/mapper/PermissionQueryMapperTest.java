@@ -0,0 +1,93 @@
+/*
+ Developed by the European Commission - Directorate General for Maritime Affairs and Fisheries @ European Union, 2015-2016.
+
+ This file is part of the Integrated Fisheries Data Management (IFDM) Suite. The IFDM Suite is free software: you can redistribute it
+ and/or modify it under the terms of the GNU General Public License as published by the Free Software Foundation, either version 3 of
+ the License, or any later version. The IFDM Suite is distributed in the hope that it will be useful, but WITHOUT ANY WARRANTY;
+ without even the implied warranty of MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU General Public License for more
+ details. You should have received a copy of the GNU General Public License along with the IFDM Suite. If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package eu.europe.ec.fisheries.uvms.subscription.mapper;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+
+import eu.europa.ec.fisheries.uvms.subscription.service.index.PermissionQuery;
+import eu.europa.ec.fisheries.uvms.subscription.service.mapper.CustomMapper;
+import eu.europa.ec.fisheries.wsdl.subscription.module.CriteriaType;
+import eu.europa.ec.fisheries.wsdl.subscription.module.MessageType;
+import eu.europa.ec.fisheries.wsdl.subscription.module.SubCriteriaType;
+import eu.europa.ec.fisheries.wsdl.subscription.module.SubscriptionDataCriteria;
+import eu.europa.ec.fisheries.wsdl.subscription.module.SubscriptionDataQuery;
+import eu.europa.ec.fisheries.wsdl.subscription.module.ValueType;
+import org.junit.Test;
+
+public class PermissionQueryMapperTest {
+
+    @Test
+    public void testNumericSenderIds(){
+        PermissionQuery query = CustomMapper.mapCriteriaToPermissionQuery(query(
+                criterion(CriteriaType.SENDER, SubCriteriaType.ORGANISATION, null, "1"),
+                criterion(CriteriaType.SENDER, SubCriteriaType.END_POINT, null, " 2 "),
+                criterion(CriteriaType.SENDER, SubCriteriaType.CHANNEL, null, "3")));
+
+        assertEquals(Long.valueOf(1L), query.getOrganisation());
+        assertEquals(Long.valueOf(2L), query.getEndPoint());
+        assertEquals(Long.valueOf(3L), query.getChannel());
+        assertEquals(3, query.getCriteria().size());
+    }
+
+    @Test
+    public void testNonNumericSenderIsLeftToTheConditions(){
+        PermissionQuery query = CustomMapper.mapCriteriaToPermissionQuery(query(
+                criterion(CriteriaType.SENDER, SubCriteriaType.ORGANISATION, null, "BEL"),
+                criterion(CriteriaType.SENDER, SubCriteriaType.END_POINT, null, "FLUX.BEL"),
+                criterion(CriteriaType.SENDER, SubCriteriaType.CHANNEL, null, "")));
+
+        assertNull(query.getOrganisation());
+        assertNull(query.getEndPoint());
+        assertNull(query.getChannel());
+        assertEquals("BEL", query.getCriteria().get(0).getValue());
+    }
+
+    @Test
+    public void testCriteriaWithoutValueAreIgnored(){
+        PermissionQuery query = CustomMapper.mapCriteriaToPermissionQuery(query(
+                criterion(CriteriaType.SENDER, SubCriteriaType.ORGANISATION, null, null),
+                criterion(CriteriaType.VALIDITY_PERIOD, SubCriteriaType.START_DATE, null, null)));
+
+        assertNull(query.getOrganisation());
+        assertNull(query.getStartDate());
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void testDateWithoutValueType(){
+        CustomMapper.mapCriteriaToPermissionQuery(query(
+                criterion(CriteriaType.VALIDITY_PERIOD, SubCriteriaType.START_DATE, null, "2017-07-01T02:00:00.000+0200")));
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void testUnparseableDate(){
+        CustomMapper.mapCriteriaToPermissionQuery(query(
+                criterion(CriteriaType.VALIDITY_PERIOD, SubCriteriaType.END_DATE, ValueType.YYYY_MM_DD_T_HH_MM_SS_SSSZ, "yesterday")));
+    }
+
+    private static SubscriptionDataQuery query(SubscriptionDataCriteria... criteria) {
+        SubscriptionDataQuery query = new SubscriptionDataQuery();
+        query.setMessageType(MessageType.FLUX_FA_REPORT_MESSAGE);
+        for (SubscriptionDataCriteria criterion : criteria) {
+            query.getCriteria().add(criterion);
+        }
+        return query;
+    }
+
+    private static SubscriptionDataCriteria criterion(CriteriaType type, SubCriteriaType subType, ValueType valueType, String value) {
+        SubscriptionDataCriteria criterion = new SubscriptionDataCriteria();
+        criterion.setCriteria(type);
+        criterion.setSubCriteria(subType);
+        criterion.setValueType(valueType);
+        criterion.setValue(value);
+        return criterion;
+    }
+}
@@ -0,0 +1,61 @@
+/*
+ Developed by the European Commission - Directorate General for Maritime Affairs and Fisheries @ European Union, 2015-2016.
+
+ This file is part of the Integrated Fisheries Data Management (IFDM) Suite. The IFDM Suite is free software: you can redistribute it
+ and/or modify it under the terms of the GNU General Public License as published by the Free Software Foundation, either version 3 of
+ the License, or any later version. The IFDM Suite is distributed in the hope that it will be useful, but WITHOUT ANY WARRANTY;
+ without even the implied warranty of MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU General Public License for more
+ details. You should have received a copy of the GNU General Public License along with the IFDM Suite. If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package eu.europe.ec.fisheries.uvms.subscription.messaging;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+
+import javax.xml.bind.JAXBException;
+
+import eu.europa.ec.fisheries.uvms.subscription.service.messaging.SubscriptionMessageCodec;
+import eu.europa.ec.fisheries.wsdl.subscription.module.MessageType;
+import eu.europa.ec.fisheries.wsdl.subscription.module.SubscriptionDataQuery;
+import eu.europa.ec.fisheries.wsdl.subscription.module.SubscriptionDataRequest;
+import eu.europa.ec.fisheries.wsdl.subscription.module.SubscriptionModuleMethod;
+import org.junit.Test;
+
+public class SubscriptionMessageCodecTest {
+
+    @Test
+    public void testPeekMethodAndUnmarshalOnce() throws JAXBException {
+        SubscriptionDataRequest request = new SubscriptionDataRequest();
+        request.setMethod(SubscriptionModuleMethod.MODULE_ACCESS_PERMISSION_REQUEST);
+        SubscriptionDataQuery query = new SubscriptionDataQuery();
+        query.setMessageType(MessageType.FLUX_FA_REPORT_MESSAGE);
+        request.setQuery(query);
+
+        String message = SubscriptionMessageCodec.marshal(request);
+
+        assertEquals(SubscriptionModuleMethod.MODULE_ACCESS_PERMISSION_REQUEST, SubscriptionMessageCodec.peekMethod(message));
+        for (int i = 0; i < 3; i++) {
+            SubscriptionDataRequest decoded = SubscriptionMessageCodec.unmarshal(message, SubscriptionDataRequest.class);
+            assertEquals(MessageType.FLUX_FA_REPORT_MESSAGE, decoded.getQuery().getMessageType());
+        }
+    }
+
+    @Test
+    public void testPeekWithoutMethod() throws JAXBException {
+        assertNull(SubscriptionMessageCodec.peekMethod("<pingResponse><response>pong</response></pingResponse>"));
+    }
+
+    @Test
+    public void testScanMethod(){
+        assertEquals(SubscriptionModuleMethod.PING, SubscriptionMessageCodec.scanMethod(
+                "<ns2:pingRequest xmlns:ns2=\"module.subscription.wsdl.fisheries.ec.europa.eu\"><method>PING</method></ns2:pingRequest>"));
+        assertNull(SubscriptionMessageCodec.scanMethod("<ns2:pingRequest><method>NOPE</method></ns2:pingRequest>"));
+        assertNull(SubscriptionMessageCodec.scanMethod("<ns2:pingRequest/>"));
+    }
+
+    @Test(expected = JAXBException.class)
+    public void testPeekUnknownMethod() throws JAXBException {
+        SubscriptionMessageCodec.peekMethod("<ns2:pingRequest xmlns:ns2=\"module.subscription.wsdl.fisheries.ec.europa.eu\"><method>NOPE</method></ns2:pingRequest>");
+    }
+}